@@ -42,6 +42,7 @@ public class CorsConfig {
         configuration.setAllowedMethods(allowedMethods);
         configuration.setAllowedHeaders(allowedHeaders);
         configuration.setAllowCredentials(allowCredentials);
+        configuration.setExposedHeaders(Arrays.asList("ETag", "Idempotent-Replayed")); // Read by clients for If-None-Match polling and retries
         configuration.setMaxAge(3600L); // 1 hour
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
@@ -28,6 +28,7 @@ import java.util.UUID;
 public class CaseController {
 
     private final CaseService caseService;
+    private final com.stok.app.service.IdempotencyService idempotencyService;
     private final com.stok.app.repository.UserRepository userRepository; // Inject UserRepository
 
     private UUID getEffectiveUserId(UUID userId, boolean allowReadAlL) {
@@ -81,12 +82,16 @@ public class CaseController {
     @PostMapping
     public ResponseEntity<ApiResponse<CaseRecordResponse>> createCase(
             @Valid @RequestBody CaseRecordRequest request,
-            @RequestParam(required = false) UUID userId) {
+            @RequestParam(required = false) UUID userId,
+            @RequestHeader(value = com.stok.app.service.IdempotencyService.HEADER, required = false) String idempotencyKey) {
         UUID effectiveUserId = getEffectiveUserId(userId, false); // Creates must belong to *someone*
-        CaseRecordResponse caseRecord = caseService.createCase(request, effectiveUserId);
-        return ResponseEntity
-                .status(HttpStatus.CREATED)
-                .body(ApiResponse.success("Case record created successfully", caseRecord));
+        return idempotencyService.execute(effectiveUserId, idempotencyKey, "POST /cases", request,
+                CaseRecordResponse.class, () -> {
+                    CaseRecordResponse caseRecord = caseService.createCase(request, effectiveUserId);
+                    return ResponseEntity
+                            .status(HttpStatus.CREATED)
+                            .body(ApiResponse.success("Case record created successfully", caseRecord));
+                });
     }
 
     @GetMapping(value = "/implant-list/export", produces = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet")
@@ -117,10 +122,10 @@ public class CaseController {
     }
 
     @DeleteMapping("/all")
-    public ResponseEntity<ApiResponse<Void>> deleteAllCases(
+    public ResponseEntity<ApiResponse<Long>> deleteAllCases(
             @RequestParam(required = false) UUID userId) {
         UUID effectiveUserId = getEffectiveUserId(userId, false);
-        caseService.deleteAllCases(effectiveUserId);
-        return ResponseEntity.ok(ApiResponse.success("All case records deleted successfully", null));
+        long deleted = caseService.deleteAllCases(effectiveUserId);
+        return ResponseEntity.ok(ApiResponse.success("All case records deleted successfully", deleted));
     }
 }
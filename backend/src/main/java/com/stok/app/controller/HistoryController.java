@@ -78,10 +78,10 @@ public class HistoryController {
     }
 
     @DeleteMapping("/all")
-    public ResponseEntity<ApiResponse<Void>> deleteAllHistory(
+    public ResponseEntity<ApiResponse<Long>> deleteAllHistory(
             @RequestParam(required = false) UUID userId) {
         UUID effectiveUserId = getEffectiveUserId(userId);
-        historyService.deleteAllHistory(effectiveUserId);
-        return ResponseEntity.ok(ApiResponse.success("All history records deleted successfully", null));
+        long deleted = historyService.deleteAllHistory(effectiveUserId);
+        return ResponseEntity.ok(ApiResponse.success("All history records deleted successfully", deleted));
     }
 }
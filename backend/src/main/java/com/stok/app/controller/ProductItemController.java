@@ -121,8 +121,8 @@ public class ProductItemController {
      */
     @PreAuthorize("hasAnyRole('ADMIN', 'YONETICI')")
     @DeleteMapping("/all")
-    public ResponseEntity<ApiResponse<Void>> deleteAll() {
-        productItemService.deleteAll();
-        return ResponseEntity.ok(ApiResponse.success("Tüm ürünler silindi", null));
+    public ResponseEntity<ApiResponse<Long>> deleteAll() {
+        long deleted = productItemService.deleteAll();
+        return ResponseEntity.ok(ApiResponse.success("Tüm ürünler silindi", deleted));
     }
 }
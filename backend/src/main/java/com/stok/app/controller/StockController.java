@@ -9,7 +9,10 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -28,6 +31,10 @@ import java.util.UUID;
 public class StockController {
 
     private final StockService stockService;
+    private final com.stok.app.service.StockReadCache stockReadCache;
+    private final com.stok.app.service.StockMovementService stockMovementService;
+    private final com.stok.app.service.IdempotencyService idempotencyService;
+    private final com.stok.app.service.StockItemStreamReader stockItemStreamReader;
     private final com.stok.app.repository.UserRepository userRepository; // Inject UserRepository
 
     private UUID getEffectiveUserId(UUID userId) {
@@ -69,23 +76,74 @@ public class StockController {
     @GetMapping
     @Operation(summary = "Get all stock items", description = "Retrieves a list of all stock items belonging to the specified user.")
     public ResponseEntity<ApiResponse<List<StockItemResponse>>> getAllStock(
+            @RequestParam(required = false) UUID userId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        UUID effectiveUserId = getEffectiveUserId(userId);
+        String etag = stockReadCache.etag("all", effectiveUserId, "");
+        if (stockReadCache.matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        List<StockItemResponse> stock = stockReadCache.get(etag, () -> stockService.getAllStock(effectiveUserId));
+        return ResponseEntity.ok().eTag(etag).body(ApiResponse.success(stock));
+    }
+
+    @GetMapping("/page")
+    @Operation(summary = "Get stock items page by page", description = "Keyset-paginated stock listing ordered by material name. Pass the returned nextCursor to fetch the following page.")
+    public ResponseEntity<ApiResponse<com.stok.app.dto.response.StockPageResponse>> getStockPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
             @RequestParam(required = false) UUID userId) {
         UUID effectiveUserId = getEffectiveUserId(userId);
-        List<StockItemResponse> stock = stockService.getAllStock(effectiveUserId);
-        return ResponseEntity.ok(ApiResponse.success(stock));
+        com.stok.app.dto.response.StockPageResponse page = stockService.getStockPage(effectiveUserId, cursor, size);
+        return ResponseEntity.ok(ApiResponse.success(page));
     }
 
     @GetMapping("/grouped")
-    @Operation(summary = "Get grouped stock items", description = "Retrieves stock items hierarchically grouped by Prefix and Material Name.")
+    @Operation(summary = "Get grouped stock items", description = "Retrieves stock items hierarchically grouped by Prefix and Material Name. Item leaves are only included with includeItems=true; otherwise each material is loaded through /grouped/items.")
     public ResponseEntity<ApiResponse<List<com.stok.app.dto.response.PrefixGroupResponse>>> getGroupedStock(
             @RequestParam(required = false) String search,
             @RequestParam(required = false) String category,
             @RequestParam(required = false) List<UUID> userIds,
+            @RequestParam(required = false) UUID userId,
+            @RequestParam(defaultValue = "false") boolean includeItems,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        UUID effectiveUserId = getEffectiveUserId(userId);
+        String filters = String.join("|",
+                String.valueOf(search),
+                String.valueOf(category),
+                userIds != null ? userIds.stream().map(UUID::toString).sorted().toList().toString() : "",
+                String.valueOf(includeItems));
+        String etag = stockReadCache.etag("grouped", effectiveUserId, filters);
+        if (stockReadCache.matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        List<com.stok.app.dto.response.PrefixGroupResponse> groupedStock = stockReadCache.get(etag,
+                () -> stockService.getGroupedStocks(effectiveUserId, search, category, userIds, includeItems),
+                StockController::groupedWeight);
+        return ResponseEntity.ok().eTag(etag).body(ApiResponse.success(groupedStock));
+    }
+
+    // Cache weight of a grouped listing: its materials plus their loaded items
+    private static int groupedWeight(List<com.stok.app.dto.response.PrefixGroupResponse> groups) {
+        int weight = 0;
+        for (com.stok.app.dto.response.PrefixGroupResponse group : groups) {
+            for (com.stok.app.dto.response.MaterialGroupResponse material : group.getMaterials()) {
+                weight += 1 + (material.getItems() != null ? material.getItems().size() : 0);
+            }
+        }
+        return weight;
+    }
+
+    @GetMapping("/grouped/items")
+    @Operation(summary = "Get items of a grouped material", description = "Loads the stock items of one material when it is expanded in the grouped view.")
+    public ResponseEntity<ApiResponse<List<StockItemResponse>>> getGroupedMaterialItems(
+            @RequestParam String materialName,
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) List<UUID> userIds,
             @RequestParam(required = false) UUID userId) {
         UUID effectiveUserId = getEffectiveUserId(userId);
-        List<com.stok.app.dto.response.PrefixGroupResponse> groupedStock = stockService.getGroupedStocks(
-                effectiveUserId, search, category, userIds);
-        return ResponseEntity.ok(ApiResponse.success(groupedStock));
+        List<StockItemResponse> items = stockService.getMaterialItems(effectiveUserId, materialName, search, userIds);
+        return ResponseEntity.ok(ApiResponse.success(items));
     }
 
     @GetMapping("/search")
@@ -109,24 +167,56 @@ public class StockController {
                 .body(ApiResponse.success("Stock item added successfully", stockItem));
     }
 
-    @PostMapping("/bulk")
+    /**
+     * The body is a JSON array of stock items, read and saved in chunks while
+     * it is still arriving instead of being bound as a whole.
+     */
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<ApiResponse<List<StockItemResponse>>> addStockItems(
-            @Valid @RequestBody List<StockItemRequest> requests,
+            java.io.InputStream body,
             @RequestParam(required = false) UUID userId) {
         UUID effectiveUserId = getEffectiveUserId(userId);
-        List<StockItemResponse> stockItems = stockService.addStockItems(requests, effectiveUserId);
+        List<StockItemResponse> stockItems = stockService.addStockItems(stockItemStreamReader.open(body),
+                effectiveUserId);
         return ResponseEntity
                 .status(HttpStatus.CREATED)
                 .body(ApiResponse.success("Stock items added successfully", stockItems));
     }
 
-    @PostMapping("/bulk-import")
+    /**
+     * Streams the body like {@code /bulk}. With an Idempotency-Key, a retry is
+     * recognized by the digest of the raw body.
+     */
+    @PostMapping(value = "/bulk-import", consumes = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<ApiResponse<com.stok.app.dto.response.BulkImportResponse>> bulkImport(
+            java.io.InputStream body,
+            @RequestParam(required = false) UUID userId,
+            @RequestParam(defaultValue = "false") boolean dryRun,
+            @RequestHeader(value = com.stok.app.service.IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        UUID effectiveUserId = getEffectiveUserId(userId);
+        com.stok.app.service.StockItemStream rows = stockItemStreamReader.open(body);
+        if (dryRun) {
+            com.stok.app.dto.response.BulkImportResponse preview = stockService.bulkImportWithDuplicateCheck(rows,
+                    effectiveUserId, true);
+            return ResponseEntity.ok(ApiResponse.success("Bulk import preview", preview));
+        }
+        return idempotencyService.executeStreamed(effectiveUserId, idempotencyKey, "POST /stocks/bulk-import",
+                rows::digest, com.stok.app.dto.response.BulkImportResponse.class, () -> {
+                    com.stok.app.dto.response.BulkImportResponse result = stockService
+                            .bulkImportWithDuplicateCheck(rows, effectiveUserId, false);
+                    return ResponseEntity
+                            .status(HttpStatus.CREATED)
+                            .body(ApiResponse.success("Bulk import completed", result));
+                });
+    }
+
+    @PostMapping("/bulk-import/copy")
+    @PreAuthorize("hasAnyRole('ADMIN', 'YONETICI', 'DEPO')")
+    public ResponseEntity<ApiResponse<com.stok.app.dto.response.BulkImportResponse>> copyImport(
             @Valid @RequestBody List<StockItemRequest> requests,
-            @RequestParam(required = false) UUID userId) {
+            @RequestParam UUID userId) {
         UUID effectiveUserId = getEffectiveUserId(userId);
-        com.stok.app.dto.response.BulkImportResponse result = stockService.bulkImportWithDuplicateCheck(requests,
-                effectiveUserId);
+        com.stok.app.dto.response.BulkImportResponse result = stockService.copyImport(requests, effectiveUserId);
         return ResponseEntity
                 .status(HttpStatus.CREATED)
                 .body(ApiResponse.success("Bulk import completed", result));
@@ -138,10 +228,26 @@ public class StockController {
             @Valid @RequestBody StockItemRequest request,
             @RequestParam(required = false) UUID userId) {
         UUID effectiveUserId = getEffectiveUserId(userId);
+        // Not retried on a version conflict: the request holds absolute values
+        // read before the concurrent change, so the client has to re-read (409)
         StockItemResponse stockItem = stockService.updateStockItem(id, effectiveUserId, request);
         return ResponseEntity.ok(ApiResponse.success("Stock item updated successfully", stockItem));
     }
 
+    /**
+     * Corrects descriptive fields of many rows at once as JSON merge patches:
+     * fields left out keep their value, fields sent as null are cleared. All
+     * rows must belong to the user or nothing is changed.
+     */
+    @PatchMapping("/bulk")
+    public ResponseEntity<ApiResponse<List<StockItemResponse>>> patchStockItems(
+            @Valid @RequestBody List<com.stok.app.dto.request.StockItemPatchRequest> requests,
+            @RequestParam(required = false) UUID userId) {
+        UUID effectiveUserId = getEffectiveUserId(userId);
+        List<StockItemResponse> stockItems = stockService.patchStockItems(requests, effectiveUserId);
+        return ResponseEntity.ok(ApiResponse.success("Stock items updated successfully", stockItems));
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<ApiResponse<Void>> deleteStock(
             @PathVariable UUID id,
@@ -161,11 +267,11 @@ public class StockController {
     }
 
     @DeleteMapping("/all")
-    public ResponseEntity<ApiResponse<Void>> deleteAllStock(
+    public ResponseEntity<ApiResponse<Long>> deleteAllStock(
             @RequestParam(required = false) UUID userId) {
         UUID effectiveUserId = getEffectiveUserId(userId);
-        stockService.deleteAllStock(effectiveUserId);
-        return ResponseEntity.ok(ApiResponse.success("All stock items deleted successfully", null));
+        long deleted = stockService.deleteAllStock(effectiveUserId);
+        return ResponseEntity.ok(ApiResponse.success("All stock items deleted successfully", deleted));
     }
 
     @GetMapping("/check-duplicate")
@@ -178,15 +284,77 @@ public class StockController {
         return ResponseEntity.ok(ApiResponse.success(exists));
     }
 
+    /**
+     * Checks up to 1000 (material, serial) pairs in one call; the flags come
+     * back in request order.
+     */
+    @PostMapping("/check-duplicates")
+    public ResponseEntity<ApiResponse<List<Boolean>>> checkDuplicates(
+            @Valid @RequestBody List<com.stok.app.dto.request.DuplicateCheckRequest> requests,
+            @RequestParam(required = false) UUID userId) {
+        UUID effectiveUserId = getEffectiveUserId(userId);
+        return ResponseEntity.ok(ApiResponse.success(stockService.checkDuplicates(requests, effectiveUserId)));
+    }
+
     // Transfer endpoints use specific sender/receiver IDs, so they don't need this
     // default logic
     @PostMapping("/transfer")
     public ResponseEntity<ApiResponse<Void>> initiateTransfer(
             @RequestBody com.stok.app.dto.request.TransferRequest request,
-            @RequestParam(required = false) UUID userId) {
+            @RequestParam(required = false) UUID userId,
+            @RequestHeader(value = com.stok.app.service.IdempotencyService.HEADER, required = false) String idempotencyKey) {
 
         UUID senderId = getEffectiveUserId(userId); // Use provided user as sender
-        stockService.initiateTransfer(senderId, request.getReceiverId(), request.getItems());
-        return ResponseEntity.ok(ApiResponse.success(null));
+        return idempotencyService.execute(senderId, idempotencyKey,
+                "POST /stocks/transfer", request, Void.class, () -> {
+                    stockService.initiateTransfer(senderId, request.getReceiverId(), request.getItems());
+                    return ResponseEntity.ok(ApiResponse.<Void>success(null));
+                });
+    }
+
+    @GetMapping("/transfers/pending")
+    public ResponseEntity<ApiResponse<List<com.stok.app.dto.response.StockTransferResponse>>> getPendingTransfers(
+            @RequestParam(required = false) UUID userId) {
+        UUID effectiveUserId = getEffectiveUserId(userId);
+        return ResponseEntity.ok(ApiResponse.success(stockService.getPendingTransfers(effectiveUserId)));
+    }
+
+    @GetMapping("/changes")
+    @Operation(summary = "Get stock changes since a watermark", description = "Delta sync: rows written and ids deleted since the watermark of the previous sync, plus the next watermark.")
+    public ResponseEntity<ApiResponse<com.stok.app.dto.response.StockChangesResponse>> getChanges(
+            @RequestParam(required = false) String since,
+            @RequestParam(required = false) UUID userId) {
+        UUID effectiveUserId = getEffectiveUserId(userId);
+        return ResponseEntity.ok(ApiResponse.success(stockService.getChanges(effectiveUserId, since)));
+    }
+
+    @GetMapping("/summary")
+    @Operation(summary = "Get stock summary", description = "Item, unit and expiring-soon counts overall and per material prefix.")
+    public ResponseEntity<ApiResponse<com.stok.app.dto.response.StockSummaryResponse>> getStockSummary(
+            @RequestParam(required = false) UUID userId) {
+        UUID effectiveUserId = getEffectiveUserId(userId);
+        return ResponseEntity.ok(ApiResponse.success(stockService.getStockSummary(effectiveUserId)));
+    }
+
+    @GetMapping("/fefo")
+    @Operation(summary = "Suggest lots to use first", description = "For each materialName (repeat the parameter for several), the in-stock lots that have not expired, earliest expiry first.")
+    public ResponseEntity<ApiResponse<List<com.stok.app.dto.response.FefoSuggestionResponse>>> getFefoSuggestions(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) UUID userId,
+            org.springframework.web.context.request.WebRequest webRequest) {
+        UUID effectiveUserId = getEffectiveUserId(userId);
+        // Read raw values: binding to List<String> would split a single name at its commas
+        String[] materialNames = webRequest.getParameterValues("materialName");
+        return ResponseEntity.ok(ApiResponse.success(stockService.getFefoSuggestions(
+                materialNames != null ? List.of(materialNames) : List.of(), limit, effectiveUserId)));
+    }
+
+    @GetMapping("/balance")
+    @Operation(summary = "Get stock held on a date", description = "Returns the lots and quantities the user held at the end of the given day, computed from the stock movement ledger.")
+    public ResponseEntity<ApiResponse<List<com.stok.app.dto.response.StockBalanceResponse>>> getBalanceAt(
+            @RequestParam @org.springframework.format.annotation.DateTimeFormat(iso = org.springframework.format.annotation.DateTimeFormat.ISO.DATE) java.time.LocalDate date,
+            @RequestParam(required = false) UUID userId) {
+        UUID effectiveUserId = getEffectiveUserId(userId);
+        return ResponseEntity.ok(ApiResponse.success(stockMovementService.getBalancesAt(effectiveUserId, date)));
     }
 }
@@ -0,0 +1,67 @@
+package com.stok.app.controller;
+
+import com.stok.app.dto.request.SyncMutationRequest;
+import com.stok.app.dto.response.ApiResponse;
+import com.stok.app.dto.response.SyncMutationResponse;
+import com.stok.app.service.SyncMutationService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.UUID;
+
+/**
+ * Sync Controller
+ * Receives the operations the mobile app queued while offline
+ */
+@RestController
+@RequestMapping("/sync")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class SyncController {
+
+    private final SyncMutationService syncMutationService;
+    private final com.stok.app.repository.UserRepository userRepository;
+
+    private UUID getEffectiveUserId(UUID userId) {
+        org.springframework.security.core.Authentication authentication = org.springframework.security.core.context.SecurityContextHolder
+                .getContext().getAuthentication();
+
+        if (authentication == null || !authentication.isAuthenticated()) {
+            throw new IllegalArgumentException("User not authenticated");
+        }
+
+        String username = authentication.getName();
+        com.stok.app.entity.User currentUser = userRepository.findByUsername(username)
+                .orElseThrow(() -> new IllegalArgumentException("User not found"));
+
+        boolean isPrivileged = authentication.getAuthorities().stream()
+                .anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN") ||
+                        a.getAuthority().equals("ROLE_YONETICI") ||
+                        a.getAuthority().equals("ROLE_DEPO"));
+
+        if (isPrivileged) {
+            return userId != null ? userId : currentUser.getId();
+        }
+
+        // Regular user: Must use their own ID
+        if (userId != null && !userId.equals(currentUser.getId())) {
+            throw new org.springframework.security.access.AccessDeniedException("You can only access your own data");
+        }
+        return currentUser.getId();
+    }
+
+    /**
+     * Applies the queued operations in order. Each one is reported as applied,
+     * duplicate (already applied by an earlier upload) or failed.
+     */
+    @PostMapping("/mutations")
+    public ResponseEntity<ApiResponse<SyncMutationResponse>> applyMutations(
+            @Valid @RequestBody SyncMutationRequest request,
+            @RequestParam(required = false) UUID userId) {
+        UUID effectiveUserId = getEffectiveUserId(userId);
+        SyncMutationResponse response = syncMutationService.apply(effectiveUserId, request.getOperations());
+        return ResponseEntity.ok(ApiResponse.success(response));
+    }
+}
@@ -0,0 +1,34 @@
+package com.stok.app.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+
+/**
+ * DTO for one (material name, serial/lot number) pair of a batch duplicate check
+ */
+public class DuplicateCheckRequest {
+
+    @NotBlank(message = "Material name is required")
+    @Size(max = 255, message = "Material name must be less than 255 characters")
+    private String materialName;
+
+    @NotBlank(message = "Serial/Lot number is required")
+    @Size(max = 100, message = "Serial/Lot number must be less than 100 characters")
+    private String serialLotNumber;
+
+    public String getMaterialName() {
+        return materialName;
+    }
+
+    public void setMaterialName(String materialName) {
+        this.materialName = materialName;
+    }
+
+    public String getSerialLotNumber() {
+        return serialLotNumber;
+    }
+
+    public void setSerialLotNumber(String serialLotNumber) {
+        this.serialLotNumber = serialLotNumber;
+    }
+}
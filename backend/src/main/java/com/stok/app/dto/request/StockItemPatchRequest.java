@@ -0,0 +1,132 @@
+package com.stok.app.dto.request;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * DTO for correcting descriptive fields of one stock row in a bulk PATCH,
+ * with JSON merge patch semantics: a field missing from the JSON keeps its
+ * current value, a field sent as null is cleared. The setters record which
+ * fields were sent, since Jackson calls them for explicit nulls too.
+ * dateAdded is required on the row, so a null there leaves it unchanged.
+ */
+@Schema(description = "Partial correction of a stock item; missing fields are left unchanged, null fields are cleared")
+public class StockItemPatchRequest {
+
+    @NotNull(message = "Stock item id is required")
+    @Schema(description = "Id of the stock item to correct")
+    private UUID id;
+
+    @Size(max = 100, message = "UBB code must be less than 100 characters")
+    @Schema(description = "Unique Barcode / UBB Code", example = "UBB123456")
+    private String ubbCode;
+
+    @Schema(description = "Expiration date", example = "2025-12-31")
+    private LocalDate expiryDate;
+
+    @Schema(description = "Date when item was added", example = "2024-01-15")
+    private LocalDate dateAdded;
+
+    @Size(max = 255, message = "From field must be less than 255 characters")
+    @Schema(description = "Origin of the item", example = "Central Warehouse")
+    private String fromField;
+
+    @Size(max = 255, message = "To field must be less than 255 characters")
+    @Schema(description = "Destination or assigned department", example = "Surgery Department")
+    private String toField;
+
+    @Size(max = 100, message = "Material code must be less than 100 characters")
+    @Schema(description = "Internal material code", example = "MAT001")
+    private String materialCode;
+
+    private boolean ubbCodePresent;
+    private boolean expiryDatePresent;
+    private boolean fromFieldPresent;
+    private boolean toFieldPresent;
+    private boolean materialCodePresent;
+
+    public UUID getId() {
+        return id;
+    }
+
+    public void setId(UUID id) {
+        this.id = id;
+    }
+
+    public String getUbbCode() {
+        return ubbCode;
+    }
+
+    public void setUbbCode(String ubbCode) {
+        this.ubbCode = ubbCode;
+        this.ubbCodePresent = true;
+    }
+
+    public boolean hasUbbCode() {
+        return ubbCodePresent;
+    }
+
+    public LocalDate getExpiryDate() {
+        return expiryDate;
+    }
+
+    public void setExpiryDate(LocalDate expiryDate) {
+        this.expiryDate = expiryDate;
+        this.expiryDatePresent = true;
+    }
+
+    public boolean hasExpiryDate() {
+        return expiryDatePresent;
+    }
+
+    public LocalDate getDateAdded() {
+        return dateAdded;
+    }
+
+    public void setDateAdded(LocalDate dateAdded) {
+        this.dateAdded = dateAdded;
+    }
+
+    public String getFromField() {
+        return fromField;
+    }
+
+    public void setFromField(String fromField) {
+        this.fromField = fromField;
+        this.fromFieldPresent = true;
+    }
+
+    public boolean hasFromField() {
+        return fromFieldPresent;
+    }
+
+    public String getToField() {
+        return toField;
+    }
+
+    public void setToField(String toField) {
+        this.toField = toField;
+        this.toFieldPresent = true;
+    }
+
+    public boolean hasToField() {
+        return toFieldPresent;
+    }
+
+    public String getMaterialCode() {
+        return materialCode;
+    }
+
+    public void setMaterialCode(String materialCode) {
+        this.materialCode = materialCode;
+        this.materialCodePresent = true;
+    }
+
+    public boolean hasMaterialCode() {
+        return materialCodePresent;
+    }
+}
@@ -51,6 +51,9 @@ public class StockItemRequest {
     @Schema(description = "Internal material code", example = "MAT001")
     private String materialCode;
 
+    @Schema(description = "On update, the version the client last read; the update is rejected if the row changed since")
+    private Long version;
+
     // Getters and Setters
     public String getMaterialName() {
         return materialName;
@@ -123,4 +126,12 @@ public class StockItemRequest {
     public void setMaterialCode(String materialCode) {
         this.materialCode = materialCode;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
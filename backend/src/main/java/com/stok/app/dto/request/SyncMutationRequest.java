@@ -0,0 +1,104 @@
+package com.stok.app.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import jakarta.validation.Valid;
+
+import java.util.List;
+
+/**
+ * Ordered batch of operations queued by the mobile app while offline.
+ */
+public class SyncMutationRequest {
+
+    public enum OperationType {
+        ADD, REMOVE, CASE, TRANSFER
+    }
+
+    @NotEmpty(message = "At least one operation is required")
+    @Size(max = 500, message = "At most 500 operations per batch")
+    private List<@Valid Operation> operations;
+
+    /**
+     * One queued operation. Only the payload field matching the type is read;
+     * payloads are validated per operation, so one bad operation does not
+     * reject the batch.
+     */
+    public static class Operation {
+
+        @NotBlank(message = "Client operation id is required")
+        @Size(max = 100, message = "Client operation id must be less than 100 characters")
+        private String clientOperationId;
+
+        @NotNull(message = "Operation type is required")
+        private OperationType type;
+
+        private List<StockItemRequest> stockItems;
+
+        private List<RemoveStockRequest> removeItems;
+
+        private CaseRecordRequest caseRecord;
+
+        private TransferRequest transfer;
+
+        // Getters and Setters
+        public String getClientOperationId() {
+            return clientOperationId;
+        }
+
+        public void setClientOperationId(String clientOperationId) {
+            this.clientOperationId = clientOperationId;
+        }
+
+        public OperationType getType() {
+            return type;
+        }
+
+        public void setType(OperationType type) {
+            this.type = type;
+        }
+
+        public List<StockItemRequest> getStockItems() {
+            return stockItems;
+        }
+
+        public void setStockItems(List<StockItemRequest> stockItems) {
+            this.stockItems = stockItems;
+        }
+
+        public List<RemoveStockRequest> getRemoveItems() {
+            return removeItems;
+        }
+
+        public void setRemoveItems(List<RemoveStockRequest> removeItems) {
+            this.removeItems = removeItems;
+        }
+
+        public CaseRecordRequest getCaseRecord() {
+            return caseRecord;
+        }
+
+        public void setCaseRecord(CaseRecordRequest caseRecord) {
+            this.caseRecord = caseRecord;
+        }
+
+        public TransferRequest getTransfer() {
+            return transfer;
+        }
+
+        public void setTransfer(TransferRequest transfer) {
+            this.transfer = transfer;
+        }
+    }
+
+    // Getters and Setters
+    public List<Operation> getOperations() {
+        return operations;
+    }
+
+    public void setOperations(List<Operation> operations) {
+        this.operations = operations;
+    }
+}
@@ -0,0 +1,20 @@
+package com.stok.app.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Lots of one material to use first during case entry, earliest expiry first.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FefoSuggestionResponse {
+    private String materialName;
+    private List<StockItemResponse> lots;
+}
@@ -8,7 +8,8 @@ import java.util.List;
 
 /**
  * Represents a group of stock items with the exact same material name.
- * This is the inner grouping level.
+ * This is the inner grouping level. Items are left empty when the tree is
+ * requested without leaves; they are then loaded per material on expand.
  */
 @Data
 @Builder
@@ -17,5 +18,6 @@ import java.util.List;
 public class MaterialGroupResponse {
     private String fullName;
     private long totalQuantity;
+    private long itemCount;
     private List<StockItemResponse> items;
 }
@@ -19,6 +19,7 @@ public class NotificationResponse {
     private NotificationType type;
     private String title;
     private String content;
+    private UUID transferId;
     private NotificationStatus status;
     private NotificationActionStatus actionStatus;
     private LocalDateTime createdAt;
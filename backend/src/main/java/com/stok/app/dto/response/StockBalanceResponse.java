@@ -0,0 +1,19 @@
+package com.stok.app.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Quantity of one lot held at a point in time.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockBalanceResponse {
+    private String materialName;
+    private String serialLotNumber;
+    private long quantity;
+}
@@ -0,0 +1,34 @@
+package com.stok.app.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Stock rows changed and deleted since the client's watermark, for the mobile
+ * delta sync.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockChangesResponse {
+    /** Rows added or updated since the watermark (every row on a full sync) */
+    private List<StockItemResponse> changed;
+
+    /** Ids of rows deleted since the watermark */
+    private List<UUID> deleted;
+
+    /** Opaque watermark to pass as since on the next sync */
+    private String watermark;
+
+    /**
+     * True when the client must replace its local stock with changed instead
+     * of applying a delta (first sync, or a watermark older than the
+     * tombstone retention)
+     */
+    private boolean fullSync;
+}
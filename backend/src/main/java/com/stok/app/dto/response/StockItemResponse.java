@@ -54,6 +54,9 @@ public class StockItemResponse {
     @Schema(description = "Last update timestamp")
     private LocalDateTime updatedAt;
 
+    @Schema(description = "Row version; send it back with an update to have it rejected if the row changed since")
+    private Long version;
+
     // Constructor
     public StockItemResponse() {
     }
@@ -191,6 +194,14 @@ public class StockItemResponse {
         this.updatedAt = updatedAt;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     // Builder Pattern Hand-coded
     public static StockItemResponseBuilder builder() {
         return new StockItemResponseBuilder();
@@ -211,6 +222,7 @@ public class StockItemResponse {
         private UUID ownerId;
         private LocalDateTime createdAt;
         private LocalDateTime updatedAt;
+        private Long version;
 
         public StockItemResponseBuilder id(UUID id) {
             this.id = id;
@@ -282,9 +294,16 @@ public class StockItemResponse {
             return this;
         }
 
+        public StockItemResponseBuilder version(Long version) {
+            this.version = version;
+            return this;
+        }
+
         public StockItemResponse build() {
-            return new StockItemResponse(id, materialName, serialLotNumber, ubbCode, expiryDate, quantity, dateAdded,
-                    fromField, toField, materialCode, ownerName, ownerId, createdAt, updatedAt);
+            StockItemResponse response = new StockItemResponse(id, materialName, serialLotNumber, ubbCode, expiryDate,
+                    quantity, dateAdded, fromField, toField, materialCode, ownerName, ownerId, createdAt, updatedAt);
+            response.setVersion(version);
+            return response;
         }
     }
 }
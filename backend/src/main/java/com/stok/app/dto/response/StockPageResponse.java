@@ -0,0 +1,24 @@
+package com.stok.app.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+/**
+ * One page of the keyset-paginated stock listing, ordered by material name and
+ * id.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockPageResponse {
+    private List<StockItemResponse> items;
+
+    /** Opaque cursor to pass back for the next page, null on the last page */
+    private String nextCursor;
+
+    private boolean hasMore;
+}
@@ -0,0 +1,34 @@
+package com.stok.app.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+/**
+ * Stock totals for the home screen and manager views, overall and per
+ * material prefix.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockSummaryResponse {
+    private long itemCount;
+    private long unitCount;
+    private long expiringSoonCount;
+    private int expiringSoonDays;
+    private List<Prefix> prefixes;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Prefix {
+        private String prefix;
+        private long itemCount;
+        private long unitCount;
+        private long expiringSoonCount;
+    }
+}
@@ -0,0 +1,45 @@
+package com.stok.app.dto.response;
+
+import com.stok.app.entity.NotificationActionStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A stock transfer between two users together with its lines.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockTransferResponse {
+    private UUID id;
+    private UUID senderId;
+    private UUID receiverId;
+    private NotificationActionStatus status;
+    private LocalDateTime createdAt;
+    private LocalDateTime processedAt;
+    private List<Item> items;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Item {
+        private String materialName;
+        private String serialLotNumber;
+        private String ubbCode;
+        private LocalDate expiryDate;
+        private Integer quantity;
+        private LocalDate dateAdded;
+        private String fromField;
+        private String toField;
+        private String materialCode;
+    }
+}
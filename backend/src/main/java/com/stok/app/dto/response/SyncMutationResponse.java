@@ -0,0 +1,41 @@
+package com.stok.app.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+/**
+ * Per-operation outcome of an offline mutation batch, in request order.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SyncMutationResponse {
+
+    public enum Status {
+        /** Applied by this request */
+        APPLIED,
+        /** Applied by an earlier request with the same client operation id */
+        DUPLICATE,
+        /** Rejected; nothing of it was applied */
+        FAILED
+    }
+
+    private int appliedCount;
+    private int duplicateCount;
+    private int failedCount;
+    private List<Result> results;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Result {
+        private String clientOperationId;
+        private Status status;
+        private String error;
+    }
+}
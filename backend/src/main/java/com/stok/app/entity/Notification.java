@@ -40,6 +40,10 @@ public class Notification {
     @Column(columnDefinition = "TEXT")
     private String content;
 
+    // Set for transfer requests; the items live in stock_transfer_items
+    @Column(name = "transfer_id")
+    private UUID transferId;
+
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     @Builder.Default
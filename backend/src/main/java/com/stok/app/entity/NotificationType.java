@@ -3,5 +3,6 @@ package com.stok.app.entity;
 public enum NotificationType {
     TRANSFER_REQUEST,
     TRANSFER_RESULT,
+    EXPIRY_ALERT,
     INFO
 }
@@ -26,6 +26,10 @@ public class StockItem {
     @Column(name = "material_name", nullable = false)
     private String materialName;
 
+    // Generated by the database from the first word of material_name (V9)
+    @Column(name = "material_prefix", insertable = false, updatable = false)
+    private String materialPrefix;
+
     @Column(name = "serial_lot_number", nullable = false, length = 100)
     private String serialLotNumber;
 
@@ -54,6 +58,11 @@ public class StockItem {
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
+    // Checked on every entity update; set-based SQL updates bump it as well
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     @CreatedDate
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -81,6 +90,14 @@ public class StockItem {
         this.materialName = materialName;
     }
 
+    public String getMaterialPrefix() {
+        return materialPrefix;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
     public String getSerialLotNumber() {
         return serialLotNumber;
     }
@@ -0,0 +1,49 @@
+package com.stok.app.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * StockMovement Entity - Append-only ledger of stock quantity changes
+ */
+@Entity
+@Table(name = "stock_movements")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockMovement {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "user_id", nullable = false)
+    private UUID userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "movement_type", nullable = false, length = 20)
+    private StockMovementType movementType;
+
+    @Column(name = "material_name", nullable = false)
+    private String materialName;
+
+    @Column(name = "serial_lot_number", nullable = false, length = 100)
+    private String serialLotNumber;
+
+    @Column(name = "quantity_delta", nullable = false)
+    private Integer quantityDelta;
+
+    @Column(name = "reference_id")
+    private UUID referenceId;
+
+    // Database clock, like the movements written by the set-based statements
+    @Column(name = "occurred_at", nullable = false, insertable = false, updatable = false)
+    private LocalDateTime occurredAt;
+}
@@ -0,0 +1,14 @@
+package com.stok.app.entity;
+
+public enum StockMovementType {
+    /** Stock held when the ledger was introduced */
+    OPENING,
+    ADD,
+    REMOVE,
+    CASE_USE,
+    TRANSFER_OUT,
+    TRANSFER_IN,
+    /** Quantity or lot corrected through an update */
+    ADJUST,
+    DELETE
+}
@@ -0,0 +1,57 @@
+package com.stok.app.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * StockTransfer Entity - Kullanıcılar arası stok transferleri
+ */
+@Entity
+@Table(name = "stock_transfers")
+@EntityListeners(AuditingEntityListener.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockTransfer {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "sender_id")
+    private UUID senderId;
+
+    @Column(name = "receiver_id", nullable = false)
+    private UUID receiverId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private NotificationActionStatus status = NotificationActionStatus.WAITING;
+
+    @OneToMany(mappedBy = "transfer", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OrderBy("lineNo ASC")
+    private List<StockTransferItem> items = new ArrayList<>();
+
+    @CreatedDate
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+
+    // Helper method to add an item
+    public void addItem(StockTransferItem item) {
+        item.setLineNo(items.size());
+        items.add(item);
+        item.setTransfer(this);
+    }
+}
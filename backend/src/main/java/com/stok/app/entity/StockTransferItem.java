@@ -0,0 +1,62 @@
+package com.stok.app.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * StockTransferItem Entity - Transfer edilen malzeme satırları
+ */
+@Entity
+@Table(name = "stock_transfer_items")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockTransferItem {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "transfer_id", nullable = false)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private StockTransfer transfer;
+
+    @Column(name = "line_no", nullable = false)
+    private Integer lineNo;
+
+    @Column(name = "material_name", nullable = false)
+    private String materialName;
+
+    @Column(name = "serial_lot_number", nullable = false, length = 100)
+    private String serialLotNumber;
+
+    @Column(name = "ubb_code", length = 100)
+    private String ubbCode;
+
+    @Column(name = "expiry_date")
+    private LocalDate expiryDate;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    @Column(name = "date_added")
+    private LocalDate dateAdded;
+
+    @Column(name = "from_field")
+    private String fromField;
+
+    @Column(name = "to_field")
+    private String toField;
+
+    @Column(name = "material_code", length = 100)
+    private String materialCode;
+}
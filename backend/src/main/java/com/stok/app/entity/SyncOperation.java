@@ -0,0 +1,32 @@
+package com.stok.app.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * SyncOperation Entity - Client operation id applied through the offline
+ * mutation queue
+ */
+@Entity
+@Table(name = "sync_operations")
+@Data
+@NoArgsConstructor
+public class SyncOperation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "user_id", nullable = false)
+    private UUID userId;
+
+    @Column(name = "client_operation_id", nullable = false, length = 100)
+    private String clientOperationId;
+
+    @Column(name = "applied_at", nullable = false, insertable = false, updatable = false)
+    private LocalDateTime appliedAt;
+}
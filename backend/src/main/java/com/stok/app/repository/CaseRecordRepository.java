@@ -2,8 +2,9 @@ package com.stok.app.repository;
 
 import com.stok.app.entity.CaseRecord;
 import com.stok.app.repository.projection.ImplantExportRowProjection;
-import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -48,4 +49,13 @@ public interface CaseRecordRepository extends JpaRepository<CaseRecord, UUID> {
             @Param("startDate") LocalDate startDate,
             @Param("endDate") LocalDate endDate,
             @Param("userId") UUID userId);
+
+    /**
+     * Deletes up to limit of the user's cases; case_materials follow through
+     * ON DELETE CASCADE. See BulkDeleter.
+     */
+    @Modifying
+    @Query(value = "DELETE FROM case_records WHERE id IN "
+            + "(SELECT id FROM case_records WHERE user_id = :userId LIMIT :limit)", nativeQuery = true)
+    int deleteChunkByUserId(@Param("userId") UUID userId, @Param("limit") int limit);
 }
@@ -2,6 +2,9 @@ package com.stok.app.repository;
 
 import com.stok.app.entity.HistoryRecord;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
@@ -29,4 +32,12 @@ public interface HistoryRecordRepository
             LocalDateTime startDate,
             LocalDateTime endDate,
             UUID userId);
+
+    /**
+     * Deletes up to limit of the user's history records; see BulkDeleter.
+     */
+    @Modifying
+    @Query(value = "DELETE FROM history_records WHERE id IN "
+            + "(SELECT id FROM history_records WHERE user_id = :userId LIMIT :limit)", nativeQuery = true)
+    int deleteChunkByUserId(@Param("userId") UUID userId, @Param("limit") int limit);
 }
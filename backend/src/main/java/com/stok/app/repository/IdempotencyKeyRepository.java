@@ -0,0 +1,47 @@
+package com.stok.app.repository;
+
+import com.stok.app.entity.IdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, UUID> {
+
+    Optional<IdempotencyKey> findByUserIdAndIdempotencyKey(UUID userId, String idempotencyKey);
+
+    /**
+     * Claims the key for the user, taking over a key whose TTL has run out.
+     * A concurrent claim of the same key waits here until the first
+     * transaction has finished. The request hash is filled in together with
+     * the response, as a streamed body is only digested once it was read.
+     *
+     * @return 1 if claimed, 0 if the key holds a live response
+     */
+    @Modifying
+    @Query(value = "INSERT INTO idempotency_keys (user_id, idempotency_key, request_hash) "
+            + "VALUES (:userId, :key, '') "
+            + "ON CONFLICT (user_id, idempotency_key) DO UPDATE "
+            + "SET request_hash = '', status_code = NULL, response_body = NULL, created_at = LOCALTIMESTAMP "
+            + "WHERE idempotency_keys.created_at < LOCALTIMESTAMP - :ttlHours * INTERVAL '1 hour'",
+            nativeQuery = true)
+    int claim(@Param("userId") UUID userId, @Param("key") String key, @Param("ttlHours") int ttlHours);
+
+    @Modifying
+    @Query(value = "UPDATE idempotency_keys "
+            + "SET request_hash = :requestHash, status_code = :statusCode, response_body = :responseBody "
+            + "WHERE user_id = :userId AND idempotency_key = :key", nativeQuery = true)
+    int storeResponse(@Param("userId") UUID userId, @Param("key") String key,
+            @Param("requestHash") String requestHash, @Param("statusCode") int statusCode,
+            @Param("responseBody") String responseBody);
+
+    @Modifying
+    @Query(value = "DELETE FROM idempotency_keys WHERE created_at < LOCALTIMESTAMP - :ttlHours * INTERVAL '1 hour'",
+            nativeQuery = true)
+    int purgeOlderThan(@Param("ttlHours") int ttlHours);
+}
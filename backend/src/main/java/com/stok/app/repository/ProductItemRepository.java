@@ -3,6 +3,9 @@ package com.stok.app.repository;
 import com.stok.app.entity.ProductItem;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -22,4 +25,13 @@ public interface ProductItemRepository extends JpaRepository<ProductItem, UUID>,
     boolean existsByProductCodeAndIdNot(String productCode, UUID id);
 
     boolean existsByProductCode(String productCode);
+
+    /**
+     * Deletes up to limit catalog products; product_item_custom_fields follow
+     * through ON DELETE CASCADE. See BulkDeleter.
+     */
+    @Modifying
+    @Query(value = "DELETE FROM product_items WHERE id IN (SELECT id FROM product_items LIMIT :limit)",
+            nativeQuery = true)
+    int deleteChunk(@Param("limit") int limit);
 }
@@ -1,11 +1,23 @@
 package com.stok.app.repository;
 
 import com.stok.app.entity.StockItem;
+import com.stok.app.repository.projection.ExpiryAlertCandidate;
+import com.stok.app.repository.projection.PrefixSummaryRow;
+import com.stok.app.repository.projection.StockItemRowProjection;
+import com.stok.app.repository.projection.StockKeyProjection;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -16,26 +28,482 @@ import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
  * StockItem Repository
  */
 @Repository
-public interface StockItemRepository extends JpaRepository<StockItem, UUID>, JpaSpecificationExecutor<StockItem> {
+public interface StockItemRepository extends JpaRepository<StockItem, UUID>, JpaSpecificationExecutor<StockItem>,
+        StockItemRepositoryCustom {
 
         List<StockItem> findByUserId(UUID userId);
 
+        long countByUserId(UUID userId);
+
+        @Query(value = """
+                        SELECT
+                            s.id AS id,
+                            s.material_name AS materialName,
+                            s.serial_lot_number AS serialLotNumber,
+                            s.ubb_code AS ubbCode,
+                            s.expiry_date AS expiryDate,
+                            s.quantity AS quantity,
+                            s.date_added AS dateAdded,
+                            s.from_field AS fromField,
+                            s.to_field AS toField,
+                            s.material_code AS materialCode,
+                            u.full_name AS ownerName,
+                            u.id AS ownerId,
+                            s.created_at AS createdAt,
+                            s.updated_at AS updatedAt,
+                            s.version AS version
+                        FROM stock_items s
+                        INNER JOIN users u ON u.id = s.user_id
+                        WHERE s.user_id = :userId
+                        ORDER BY s.material_name ASC, s.id ASC
+                        """, nativeQuery = true)
+        List<StockItemRowProjection> findRowsByUserId(@Param("userId") UUID userId);
+
+        @Query(value = """
+                        SELECT
+                            s.id AS id,
+                            s.material_name AS materialName,
+                            s.serial_lot_number AS serialLotNumber,
+                            s.ubb_code AS ubbCode,
+                            s.expiry_date AS expiryDate,
+                            s.quantity AS quantity,
+                            s.date_added AS dateAdded,
+                            s.from_field AS fromField,
+                            s.to_field AS toField,
+                            s.material_code AS materialCode,
+                            u.full_name AS ownerName,
+                            u.id AS ownerId,
+                            s.created_at AS createdAt,
+                            s.updated_at AS updatedAt,
+                            s.version AS version
+                        FROM stock_items s
+                        INNER JOIN users u ON u.id = s.user_id
+                        WHERE s.id = ANY(CAST(:ids AS uuid[]))
+                        ORDER BY s.material_name ASC, s.id ASC
+                        """, nativeQuery = true)
+        List<StockItemRowProjection> findRowsByIds(@Param("ids") String[] ids);
+
+        /**
+         * Every user's stock with the owner joined in, for the "ALL USERS"
+         * listing; one query however many owners there are.
+         */
+        @Query("""
+                        SELECT
+                            s.id AS id,
+                            s.materialName AS materialName,
+                            s.serialLotNumber AS serialLotNumber,
+                            s.ubbCode AS ubbCode,
+                            s.expiryDate AS expiryDate,
+                            s.quantity AS quantity,
+                            s.dateAdded AS dateAdded,
+                            s.fromField AS fromField,
+                            s.toField AS toField,
+                            s.materialCode AS materialCode,
+                            u.fullName AS ownerName,
+                            u.id AS ownerId,
+                            s.createdAt AS createdAt,
+                            s.updatedAt AS updatedAt,
+                            s.version AS version
+                        FROM StockItem s
+                        JOIN s.user u
+                        ORDER BY s.materialName ASC, s.id ASC
+                        """)
+        List<StockItemRowProjection> findAllRows();
+
+        // The owner is fetch-joined so mapping the items never loads users one by one
+        @Override
+        @EntityGraph(attributePaths = "user")
+        List<StockItem> findAll(Specification<StockItem> spec);
+
+        @Override
+        @EntityGraph(attributePaths = "user")
+        List<StockItem> findAll(Specification<StockItem> spec, Sort sort);
+
+        /**
+         * The user's rows written after the given database timestamp, served by
+         * idx_stock_items_user_updated.
+         */
+        @Query(value = """
+                        SELECT
+                            s.id AS id,
+                            s.material_name AS materialName,
+                            s.serial_lot_number AS serialLotNumber,
+                            s.ubb_code AS ubbCode,
+                            s.expiry_date AS expiryDate,
+                            s.quantity AS quantity,
+                            s.date_added AS dateAdded,
+                            s.from_field AS fromField,
+                            s.to_field AS toField,
+                            s.material_code AS materialCode,
+                            u.full_name AS ownerName,
+                            u.id AS ownerId,
+                            s.created_at AS createdAt,
+                            s.updated_at AS updatedAt,
+                            s.version AS version
+                        FROM stock_items s
+                        INNER JOIN users u ON u.id = s.user_id
+                        WHERE s.user_id = :userId AND s.updated_at > CAST(:since AS timestamp)
+                        ORDER BY s.updated_at ASC, s.id ASC
+                        """, nativeQuery = true)
+        List<StockItemRowProjection> findRowsChangedSince(
+                        @Param("userId") UUID userId,
+                        @Param("since") String since);
+
+        /**
+         * Ids of the user's rows deleted after the given database timestamp.
+         */
+        @Query(value = """
+                        SELECT id FROM stock_tombstones
+                        WHERE user_id = :userId AND deleted_at > CAST(:since AS timestamp)
+                        """, nativeQuery = true)
+        List<UUID> findDeletedIdsSince(@Param("userId") UUID userId, @Param("since") String since);
+
+        /**
+         * Rows and tombstones are stamped with the start time of the transaction
+         * that wrote them (LOCALTIMESTAMP), so a transaction still running may
+         * commit rows older than now. The watermark is therefore just before the
+         * start of the oldest transaction open in this database, the sync's own
+         * included; rows any of them commit later are past it. Without
+         * pg_read_all_stats, pg_stat_activity shows xact_start only for sessions
+         * of the same role, which all stock writers use.
+         */
+        String SYNC_WATERMARK_SQL = """
+                        SELECT CAST(LEAST(LOCALTIMESTAMP, MIN(CAST(xact_start AS timestamp)))
+                            - INTERVAL '1 microsecond' AS text)
+                        FROM pg_stat_activity
+                        WHERE datname = current_database() AND xact_start IS NOT NULL
+                        """;
+
+        /**
+         * Watermark for the next delta sync, as text; see SYNC_WATERMARK_SQL.
+         * Timestamps stay in the database's own clock and are never converted
+         * through the JVM.
+         */
+        @Query(value = SYNC_WATERMARK_SQL, nativeQuery = true)
+        String currentSyncWatermark();
+
+        /**
+         * True when tombstones since the given timestamp may already have been purged.
+         */
+        @Query(value = "SELECT CAST(:since AS timestamp) < LOCALTIMESTAMP - :retentionDays * INTERVAL '1 day'",
+                        nativeQuery = true)
+        boolean isSyncWatermarkExpired(@Param("since") String since, @Param("retentionDays") int retentionDays);
+
+        @Modifying
+        @Query(value = "DELETE FROM stock_tombstones WHERE deleted_at < LOCALTIMESTAMP - :retentionDays * INTERVAL '1 day'",
+                        nativeQuery = true)
+        int purgeTombstones(@Param("retentionDays") int retentionDays);
+
+        /**
+         * Loads and row-locks (SELECT ... FOR UPDATE) the given items. Rows are
+         * locked in id order, so two transactions locking overlapping sets
+         * always queue instead of deadlocking.
+         */
+        @Lock(LockModeType.PESSIMISTIC_WRITE)
+        @Query("SELECT s FROM StockItem s WHERE s.id IN :ids ORDER BY s.id")
+        List<StockItem> findAllByIdForUpdate(@Param("ids") Collection<UUID> ids);
+
         Optional<StockItem> findByMaterialNameAndSerialLotNumberAndUserId(
                         String materialName,
                         String serialLotNumber,
                         UUID userId);
 
+        /**
+         * Returns which of the given (material name, serial/lot) pairs the user
+         * already holds, in one round trip. names[i] and serials[i] form a pair;
+         * the join is answered by the uq_material_serial index.
+         */
+        @Query(value = """
+                        SELECT
+                            s.material_name AS materialName,
+                            s.serial_lot_number AS serialLotNumber
+                        FROM unnest(CAST(:names AS text[]), CAST(:serials AS text[]))
+                            AS k(material_name, serial_lot_number)
+                        INNER JOIN stock_items s
+                            ON s.material_name = k.material_name
+                            AND s.serial_lot_number = k.serial_lot_number
+                            AND s.user_id = :userId
+                        """, nativeQuery = true)
+        List<StockKeyProjection> findExistingKeys(
+                        @Param("userId") UUID userId,
+                        @Param("names") String[] names,
+                        @Param("serials") String[] serials);
+
+        /**
+         * (material name, serial/lot number) of every row the user holds, used
+         * to build the user's duplicate-check filter.
+         */
+        @Query(value = """
+                        SELECT
+                            s.material_name AS materialName,
+                            s.serial_lot_number AS serialLotNumber
+                        FROM stock_items s
+                        WHERE s.user_id = :userId
+                        """, nativeQuery = true)
+        List<StockKeyProjection> findKeysByUserId(@Param("userId") UUID userId);
+
         List<StockItem> findByExpiryDateBeforeAndUserId(LocalDate date, UUID userId);
 
+        /**
+         * The user's per-prefix counters, maintained by the stock_summary triggers.
+         */
+        @Query(value = """
+                        SELECT prefix AS prefix, item_count AS itemCount, unit_count AS unitCount
+                        FROM stock_summary
+                        WHERE user_id = :userId AND item_count > 0
+                        ORDER BY prefix
+                        """, nativeQuery = true)
+        List<PrefixSummaryRow> findSummaryByUserId(@Param("userId") UUID userId);
+
+        /**
+         * Per-prefix counters summed over all users (privileged roles).
+         */
+        @Query(value = """
+                        SELECT prefix AS prefix, SUM(item_count) AS itemCount, SUM(unit_count) AS unitCount
+                        FROM stock_summary
+                        WHERE item_count > 0
+                        GROUP BY prefix
+                        ORDER BY prefix
+                        """, nativeQuery = true)
+        List<PrefixSummaryRow> findSummaryForAllUsers();
+
+        /**
+         * Per-prefix counts of the user's items expiring between the two dates,
+         * served by idx_stock_items_user_expiry.
+         */
+        @Query(value = """
+                        SELECT material_prefix AS prefix, COUNT(*) AS itemCount, SUM(quantity) AS unitCount
+                        FROM stock_items
+                        WHERE user_id = :userId AND expiry_date BETWEEN :from AND :until
+                        GROUP BY material_prefix
+                        """, nativeQuery = true)
+        List<PrefixSummaryRow> findExpiringByUserId(
+                        @Param("userId") UUID userId,
+                        @Param("from") LocalDate from,
+                        @Param("until") LocalDate until);
+
+        @Query(value = """
+                        SELECT material_prefix AS prefix, COUNT(*) AS itemCount, SUM(quantity) AS unitCount
+                        FROM stock_items
+                        WHERE expiry_date BETWEEN :from AND :until
+                        GROUP BY material_prefix
+                        """, nativeQuery = true)
+        List<PrefixSummaryRow> findExpiringForAllUsers(
+                        @Param("from") LocalDate from,
+                        @Param("until") LocalDate until);
+
+        /**
+         * Items of all users expiring between today and until90 whose tightest
+         * crossed threshold is tighter than the one recorded in
+         * stock_expiry_alerts. Served by idx_stock_items_expiry_date.
+         */
+        @Query(value = """
+                        SELECT
+                            s.id AS id,
+                            s.user_id AS userId,
+                            s.material_name AS materialName,
+                            s.serial_lot_number AS serialLotNumber,
+                            s.expiry_date AS expiryDate,
+                            s.quantity AS quantity,
+                            t.threshold_days AS thresholdDays
+                        FROM stock_items s
+                        CROSS JOIN LATERAL (
+                            SELECT CASE
+                                WHEN s.expiry_date <= :until7 THEN 7
+                                WHEN s.expiry_date <= :until30 THEN 30
+                                ELSE 90
+                            END AS threshold_days
+                        ) t
+                        LEFT JOIN stock_expiry_alerts a
+                            ON a.stock_item_id = s.id AND a.expiry_date = s.expiry_date
+                        WHERE s.expiry_date BETWEEN :today AND :until90
+                          AND s.quantity > 0
+                          AND (a.stock_item_id IS NULL OR a.threshold_days > t.threshold_days)
+                        ORDER BY s.user_id, s.expiry_date, s.id
+                        LIMIT :limit
+                        """, nativeQuery = true)
+        List<ExpiryAlertCandidate> findExpiryAlertCandidates(
+                        @Param("today") LocalDate today,
+                        @Param("until7") LocalDate until7,
+                        @Param("until30") LocalDate until30,
+                        @Param("until90") LocalDate until90,
+                        @Param("limit") int limit);
+
         List<StockItem> findByMaterialNameContainingIgnoreCaseAndUserId(String materialName, UUID userId);
 
+        /**
+         * First-expiry-first-out lots: for each of the materials, up to lotsPerMaterial
+         * in-stock lots that have not expired, earliest expiry first and undated lots
+         * last. Each material is one range scan of the partial idx_stock_items_fefo
+         * index. Rows come grouped by material in the order of the names array.
+         */
+        @Query(value = """
+                        SELECT
+                            s.id AS id,
+                            s.material_name AS materialName,
+                            s.serial_lot_number AS serialLotNumber,
+                            s.ubb_code AS ubbCode,
+                            s.expiry_date AS expiryDate,
+                            s.quantity AS quantity,
+                            s.date_added AS dateAdded,
+                            s.from_field AS fromField,
+                            s.to_field AS toField,
+                            s.material_code AS materialCode,
+                            u.full_name AS ownerName,
+                            u.id AS ownerId,
+                            s.created_at AS createdAt,
+                            s.updated_at AS updatedAt,
+                            s.version AS version
+                        FROM unnest(CAST(:names AS text[])) WITH ORDINALITY AS m(material_name, ord)
+                        CROSS JOIN LATERAL (
+                            SELECT *
+                            FROM stock_items f
+                            WHERE f.user_id = :userId
+                                AND f.material_name = m.material_name
+                                AND f.quantity > 0
+                                AND (f.expiry_date >= :today OR f.expiry_date IS NULL)
+                            ORDER BY f.expiry_date ASC, f.id ASC
+                            LIMIT :lotsPerMaterial
+                        ) s
+                        INNER JOIN users u ON u.id = s.user_id
+                        ORDER BY m.ord, s.expiry_date ASC, s.id ASC
+                        """, nativeQuery = true)
+        List<StockItemRowProjection> findFefoLots(
+                        @Param("userId") UUID userId,
+                        @Param("names") String[] names,
+                        @Param("today") LocalDate today,
+                        @Param("lotsPerMaterial") int lotsPerMaterial);
+
         @Query("SELECT s FROM StockItem s WHERE s.user.id = :userId AND s.quantity > 0 ORDER BY s.expiryDate ASC")
         List<StockItem> findActiveStockByUserId(UUID userId);
 
-        @Query("SELECT s FROM StockItem s WHERE s.user.id = :userId AND " +
-                        "(LOWER(s.serialLotNumber) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
-                        "LOWER(s.materialName) LIKE LOWER(CONCAT('%', :query, '%')))")
-        List<StockItem> searchByQuery(@org.springframework.data.repository.query.Param("userId") UUID userId,
-                        @org.springframework.data.repository.query.Param("query") String query,
-                        org.springframework.data.domain.Pageable pageable);
+        /**
+         * Substring search on serial/lot number and material name, served by the
+         * pg_trgm indexes of V10. Serial prefix matches come first, then rows
+         * ranked by trigram similarity.
+         *
+         * @param pattern the query with LIKE wildcards escaped
+         * @param query   the raw query, used for similarity ranking
+         */
+        @Query(value = """
+                        SELECT
+                            s.id AS id,
+                            s.material_name AS materialName,
+                            s.serial_lot_number AS serialLotNumber,
+                            s.ubb_code AS ubbCode,
+                            s.expiry_date AS expiryDate,
+                            s.quantity AS quantity,
+                            s.date_added AS dateAdded,
+                            s.from_field AS fromField,
+                            s.to_field AS toField,
+                            s.material_code AS materialCode,
+                            u.full_name AS ownerName,
+                            u.id AS ownerId,
+                            s.created_at AS createdAt,
+                            s.updated_at AS updatedAt,
+                            s.version AS version
+                        FROM stock_items s
+                        INNER JOIN users u ON u.id = s.user_id
+                        WHERE s.user_id = :userId
+                          AND (LOWER(s.serial_lot_number) LIKE '%' || LOWER(:pattern) || '%'
+                               OR LOWER(s.material_name) LIKE '%' || LOWER(:pattern) || '%')
+                        ORDER BY
+                            CASE WHEN LOWER(s.serial_lot_number) LIKE LOWER(:pattern) || '%' THEN 0 ELSE 1 END,
+                            GREATEST(similarity(LOWER(s.serial_lot_number), LOWER(:query)),
+                                     similarity(LOWER(s.material_name), LOWER(:query))) DESC,
+                            s.material_name ASC,
+                            s.id ASC
+                        LIMIT :limit
+                        """, nativeQuery = true)
+        List<StockItemRowProjection> searchByQuery(
+                        @Param("userId") UUID userId,
+                        @Param("pattern") String pattern,
+                        @Param("query") String query,
+                        @Param("limit") int limit);
+
+        /**
+         * Keyset page over a single user's stock, resuming strictly after
+         * (afterName, afterId). Served by idx_stock_items_user_material_id.
+         */
+        @Query(value = """
+                        SELECT
+                            s.id AS id,
+                            s.material_name AS materialName,
+                            s.serial_lot_number AS serialLotNumber,
+                            s.ubb_code AS ubbCode,
+                            s.expiry_date AS expiryDate,
+                            s.quantity AS quantity,
+                            s.date_added AS dateAdded,
+                            s.from_field AS fromField,
+                            s.to_field AS toField,
+                            s.material_code AS materialCode,
+                            u.full_name AS ownerName,
+                            u.id AS ownerId,
+                            s.created_at AS createdAt,
+                            s.updated_at AS updatedAt,
+                            s.version AS version
+                        FROM stock_items s
+                        INNER JOIN users u ON u.id = s.user_id
+                        WHERE s.user_id = :userId
+                          AND (s.material_name, s.id) > (:afterName, :afterId)
+                        ORDER BY s.material_name ASC, s.id ASC
+                        LIMIT :limit
+                        """, nativeQuery = true)
+        List<StockItemRowProjection> findPageByUserIdAfter(
+                        @Param("userId") UUID userId,
+                        @Param("afterName") String afterName,
+                        @Param("afterId") UUID afterId,
+                        @Param("limit") int limit);
+
+        /**
+         * Keyset page over all users' stock, resuming strictly after
+         * (afterName, afterId). Served by idx_stock_items_material_name_id.
+         */
+        @Query(value = """
+                        SELECT
+                            s.id AS id,
+                            s.material_name AS materialName,
+                            s.serial_lot_number AS serialLotNumber,
+                            s.ubb_code AS ubbCode,
+                            s.expiry_date AS expiryDate,
+                            s.quantity AS quantity,
+                            s.date_added AS dateAdded,
+                            s.from_field AS fromField,
+                            s.to_field AS toField,
+                            s.material_code AS materialCode,
+                            u.full_name AS ownerName,
+                            u.id AS ownerId,
+                            s.created_at AS createdAt,
+                            s.updated_at AS updatedAt,
+                            s.version AS version
+                        FROM stock_items s
+                        INNER JOIN users u ON u.id = s.user_id
+                        WHERE (s.material_name, s.id) > (:afterName, :afterId)
+                        ORDER BY s.material_name ASC, s.id ASC
+                        LIMIT :limit
+                        """, nativeQuery = true)
+        List<StockItemRowProjection> findPageAfter(
+                        @Param("afterName") String afterName,
+                        @Param("afterId") UUID afterId,
+                        @Param("limit") int limit);
+
+        /**
+         * Deletes up to limit of the user's stock rows and records a DELETE
+         * movement for each in the same statement; see BulkDeleter.
+         *
+         * @return number of deleted rows
+         */
+        @Modifying
+        @Query(value = """
+                        WITH deleted AS (
+                            DELETE FROM stock_items
+                            WHERE id IN (SELECT id FROM stock_items WHERE user_id = :userId LIMIT :limit)
+                            RETURNING user_id, material_name, serial_lot_number, quantity
+                        )
+                        INSERT INTO stock_movements (user_id, movement_type, material_name, serial_lot_number,
+                            quantity_delta)
+                        SELECT user_id, 'DELETE', material_name, serial_lot_number, -quantity
+                        FROM deleted
+                        """, nativeQuery = true)
+        int deleteChunkByUserId(@Param("userId") UUID userId, @Param("limit") int limit);
 }
@@ -0,0 +1,77 @@
+package com.stok.app.repository;
+
+import com.stok.app.dto.request.StockItemPatchRequest;
+import com.stok.app.dto.request.StockItemRequest;
+import com.stok.app.entity.StockItem;
+import com.stok.app.repository.projection.ExpiryAlertCandidate;
+import com.stok.app.repository.projection.MaterialTotalRow;
+import com.stok.app.repository.projection.StockDeductionRow;
+import com.stok.app.repository.projection.StagedImportResult;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Hand-written StockItem queries that Spring Data cannot derive.
+ */
+public interface StockItemRepositoryCustom {
+
+    /**
+     * Sums quantities per (prefix, material) for the stock matching the given
+     * filters, in a single GROUP BY query.
+     */
+    List<MaterialTotalRow> findMaterialTotals(Specification<StockItem> spec);
+
+    /**
+     * Streams the rows into stock_import_staging with COPY, then merges them into
+     * the user's stock with one INSERT ... SELECT. Rows whose (material name,
+     * serial/lot) the user already holds, or that repeat an earlier row, are
+     * skipped. Each inserted row is recorded as an ADD movement referencing the
+     * batch. Runs on the caller's transaction.
+     */
+    StagedImportResult importViaCopy(UUID userId, Iterable<StockItemRequest> rows);
+
+    /**
+     * Applies the corrections with one UPDATE ... FROM unnest(...) statement;
+     * fields the patch carries are written, null included, and the others
+     * keep their value. Only rows owned by the user are touched,
+     * so ids that are missing or belong to someone else are simply not in the
+     * result. Ids must be distinct.
+     *
+     * @return ids of the updated rows
+     */
+    List<UUID> patchStock(UUID userId, List<StockItemPatchRequest> patches);
+
+    /**
+     * Writes pending changes and empties the persistence context, so a chunked
+     * import does not keep every saved row managed until commit.
+     */
+    void flushAndClear();
+
+    /**
+     * Subtracts quantities[i] from the user's (names[i], serials[i]) row in one
+     * conditional UPDATE and deletes the rows that reach zero. A row holding
+     * less than requested is left untouched and missing from the result, so
+     * callers detect shortages by comparing sizes. Keys must be distinct.
+     * Pending changes are flushed first and the persistence context is cleared
+     * afterwards, so no stale StockItem stays managed.
+     */
+    List<StockDeductionRow> deductStock(UUID userId, String[] names, String[] serials, int[] quantities);
+
+    /**
+     * Adds the rows to the user's stock in one INSERT ... ON CONFLICT statement:
+     * new (material name, serial/lot) pairs are inserted, existing ones get the
+     * quantity added. Repeated pairs in the input are summed first. Like
+     * {@link #deductStock}, clears the persistence context afterwards.
+     *
+     * @return number of stock rows inserted or updated
+     */
+    int upsertStock(UUID userId, List<StockItemRequest> rows);
+
+    /**
+     * Records the alerted threshold of each candidate in stock_expiry_alerts,
+     * so the next scan skips it until it crosses a tighter threshold.
+     */
+    void recordExpiryAlerts(List<ExpiryAlertCandidate> alerted);
+}
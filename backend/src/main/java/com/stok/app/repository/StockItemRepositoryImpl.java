@@ -0,0 +1,444 @@
+package com.stok.app.repository;
+
+import com.stok.app.dto.request.StockItemPatchRequest;
+import com.stok.app.dto.request.StockItemRequest;
+import com.stok.app.entity.StockItem;
+import com.stok.app.repository.projection.ExpiryAlertCandidate;
+import com.stok.app.repository.projection.MaterialTotalRow;
+import com.stok.app.repository.projection.StockDeductionRow;
+import com.stok.app.repository.projection.StagedImportResult;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.Session;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * StockItemRepositoryCustom implementation, picked up by Spring Data through
+ * the "Impl" suffix.
+ */
+public class StockItemRepositoryImpl implements StockItemRepositoryCustom {
+
+    // Rows are sent to the server in chunks of this many bytes
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private static final String COPY_SQL = """
+            COPY stock_import_staging (batch_id, line_no, material_name, serial_lot_number, ubb_code,
+                expiry_date, quantity, date_added, from_field, to_field, material_code)
+            FROM STDIN WITH (FORMAT csv)
+            """;
+
+    // DISTINCT ON keeps the first occurrence of a repeated key, like the per-row import did
+    private static final String MERGE_SQL = """
+            WITH inserted AS (
+                INSERT INTO stock_items (material_name, serial_lot_number, ubb_code, expiry_date, quantity,
+                    date_added, from_field, to_field, material_code, user_id)
+                SELECT DISTINCT ON (st.material_name, st.serial_lot_number)
+                    st.material_name, st.serial_lot_number, st.ubb_code, st.expiry_date, st.quantity,
+                    COALESCE(st.date_added, CURRENT_DATE), st.from_field, st.to_field, st.material_code, ?
+                FROM stock_import_staging st
+                WHERE st.batch_id = ?
+                ORDER BY st.material_name, st.serial_lot_number, st.line_no
+                ON CONFLICT (material_name, serial_lot_number, user_id) DO NOTHING
+                RETURNING user_id, material_name, serial_lot_number, quantity
+            ),
+            ledger AS (
+                INSERT INTO stock_movements (user_id, movement_type, material_name, serial_lot_number,
+                    quantity_delta, reference_id)
+                SELECT user_id, 'ADD', material_name, serial_lot_number, quantity, ?
+                FROM inserted
+                WHERE quantity <> 0
+            )
+            SELECT COUNT(*), COALESCE(SUM(quantity), 0) FROM inserted
+            """;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<MaterialTotalRow> findMaterialTotals(Specification<StockItem> spec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<MaterialTotalRow> query = cb.createQuery(MaterialTotalRow.class);
+        Root<StockItem> root = query.from(StockItem.class);
+
+        query.select(cb.construct(MaterialTotalRow.class,
+                root.get("materialPrefix"),
+                root.get("materialName"),
+                cb.sumAsLong(root.get("quantity")),
+                cb.count(root)));
+
+        Predicate predicate = spec != null ? spec.toPredicate(root, query, cb) : null;
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.groupBy(root.get("materialPrefix"), root.get("materialName"));
+
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    // Arrays keep the statement text fixed whatever the number of lines. Rows
+    // are locked in id order first, like findAllByIdForUpdate, so a deduction
+    // and a concurrent transfer touching the same lots queue instead of
+    // deadlocking
+    static final String DEDUCT_SQL = """
+            WITH locked AS (
+                SELECT s.id, v.qty
+                FROM stock_items s
+                JOIN unnest(?::text[], ?::text[], ?::int[]) AS v(material_name, serial_lot_number, qty)
+                  ON s.material_name = v.material_name
+                 AND s.serial_lot_number = v.serial_lot_number
+                WHERE s.user_id = ?
+                ORDER BY s.id
+                FOR UPDATE OF s
+            )
+            UPDATE stock_items s
+            SET quantity = s.quantity - l.qty, version = s.version + 1, updated_at = CURRENT_TIMESTAMP
+            FROM locked l
+            WHERE s.id = l.id
+              AND s.quantity >= l.qty
+            RETURNING s.id, s.material_name, s.serial_lot_number, s.quantity
+            """;
+
+    @Override
+    public List<StockDeductionRow> deductStock(UUID userId, String[] names, String[] serials, int[] quantities) {
+        Session session = entityManager.unwrap(Session.class);
+        session.flush();
+
+        List<StockDeductionRow> deducted = session.doReturningWork(connection -> {
+            Integer[] boxed = new Integer[quantities.length];
+            for (int i = 0; i < quantities.length; i++) {
+                boxed[i] = quantities[i];
+            }
+
+            List<StockDeductionRow> rows = new ArrayList<>();
+            List<UUID> emptied = new ArrayList<>();
+            try (PreparedStatement update = connection.prepareStatement(DEDUCT_SQL)) {
+                update.setArray(1, connection.createArrayOf("text", names));
+                update.setArray(2, connection.createArrayOf("text", serials));
+                update.setArray(3, connection.createArrayOf("int4", boxed));
+                update.setObject(4, userId);
+                try (ResultSet rs = update.executeQuery()) {
+                    while (rs.next()) {
+                        StockDeductionRow row = new StockDeductionRow(rs.getObject(1, UUID.class),
+                                rs.getString(2), rs.getString(3), rs.getInt(4));
+                        rows.add(row);
+                        if (row.getRemainingQuantity() == 0) {
+                            emptied.add(row.getId());
+                        }
+                    }
+                }
+            }
+
+            if (!emptied.isEmpty()) {
+                try (PreparedStatement delete = connection
+                        .prepareStatement("DELETE FROM stock_items WHERE id = ANY(?) AND quantity = 0")) {
+                    delete.setArray(1, connection.createArrayOf("uuid", emptied.toArray()));
+                    delete.executeUpdate();
+                }
+            }
+            return rows;
+        });
+        // Managed copies of the touched rows are stale now
+        session.clear();
+        return deducted;
+    }
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO stock_items AS s (material_name, serial_lot_number, ubb_code, expiry_date, quantity,
+                date_added, from_field, to_field, material_code, user_id)
+            SELECT v.material_name, v.serial_lot_number, v.ubb_code, v.expiry_date, v.quantity,
+                COALESCE(v.date_added, CURRENT_DATE), v.from_field, v.to_field, v.material_code, ?
+            FROM unnest(?::text[], ?::text[], ?::text[], ?::date[], ?::int[], ?::date[], ?::text[], ?::text[],
+                ?::text[]) AS v(material_name, serial_lot_number, ubb_code, expiry_date, quantity, date_added,
+                from_field, to_field, material_code)
+            ON CONFLICT (material_name, serial_lot_number, user_id) DO UPDATE
+            SET quantity = s.quantity + EXCLUDED.quantity, version = s.version + 1, updated_at = CURRENT_TIMESTAMP
+            """;
+
+    @Override
+    public int upsertStock(UUID userId, List<StockItemRequest> rows) {
+        // ON CONFLICT DO UPDATE cannot touch the same row twice in one statement
+        Map<String, StockItemRequest> merged = new LinkedHashMap<>();
+        Map<String, Integer> quantities = new LinkedHashMap<>();
+        for (StockItemRequest row : rows) {
+            String key = row.getMaterialName() + "\u0000" + row.getSerialLotNumber();
+            merged.putIfAbsent(key, row);
+            quantities.merge(key, row.getQuantity() != null ? row.getQuantity() : 0, Integer::sum);
+        }
+        if (merged.isEmpty()) {
+            return 0;
+        }
+
+        int size = merged.size();
+        String[] names = new String[size];
+        String[] serials = new String[size];
+        String[] ubbCodes = new String[size];
+        java.sql.Date[] expiryDates = new java.sql.Date[size];
+        Integer[] quantityValues = new Integer[size];
+        java.sql.Date[] datesAdded = new java.sql.Date[size];
+        String[] fromFields = new String[size];
+        String[] toFields = new String[size];
+        String[] materialCodes = new String[size];
+        int i = 0;
+        for (Map.Entry<String, StockItemRequest> entry : merged.entrySet()) {
+            StockItemRequest row = entry.getValue();
+            names[i] = row.getMaterialName();
+            serials[i] = row.getSerialLotNumber();
+            ubbCodes[i] = row.getUbbCode();
+            expiryDates[i] = row.getExpiryDate() != null ? java.sql.Date.valueOf(row.getExpiryDate()) : null;
+            quantityValues[i] = quantities.get(entry.getKey());
+            datesAdded[i] = row.getDateAdded() != null ? java.sql.Date.valueOf(row.getDateAdded()) : null;
+            fromFields[i] = row.getFromField();
+            toFields[i] = row.getToField();
+            materialCodes[i] = row.getMaterialCode();
+            i++;
+        }
+
+        Session session = entityManager.unwrap(Session.class);
+        session.flush();
+        int affected = session.doReturningWork(connection -> {
+            try (PreparedStatement upsert = connection.prepareStatement(UPSERT_SQL)) {
+                upsert.setObject(1, userId);
+                upsert.setArray(2, connection.createArrayOf("text", names));
+                upsert.setArray(3, connection.createArrayOf("text", serials));
+                upsert.setArray(4, connection.createArrayOf("text", ubbCodes));
+                upsert.setArray(5, connection.createArrayOf("date", expiryDates));
+                upsert.setArray(6, connection.createArrayOf("int4", quantityValues));
+                upsert.setArray(7, connection.createArrayOf("date", datesAdded));
+                upsert.setArray(8, connection.createArrayOf("text", fromFields));
+                upsert.setArray(9, connection.createArrayOf("text", toFields));
+                upsert.setArray(10, connection.createArrayOf("text", materialCodes));
+                return upsert.executeUpdate();
+            }
+        });
+        // Managed copies of the touched rows are stale now
+        session.clear();
+        return affected;
+    }
+
+    private static final String RECORD_ALERTS_SQL = """
+            INSERT INTO stock_expiry_alerts (stock_item_id, threshold_days, expiry_date, alerted_at)
+            SELECT v.id, v.threshold_days, v.expiry_date, CURRENT_TIMESTAMP
+            FROM unnest(?::uuid[], ?::int[], ?::date[]) AS v(id, threshold_days, expiry_date)
+            ON CONFLICT (stock_item_id) DO UPDATE
+            SET threshold_days = EXCLUDED.threshold_days,
+                expiry_date = EXCLUDED.expiry_date,
+                alerted_at = EXCLUDED.alerted_at
+            """;
+
+    @Override
+    public void recordExpiryAlerts(List<ExpiryAlertCandidate> alerted) {
+        if (alerted.isEmpty()) {
+            return;
+        }
+        UUID[] ids = new UUID[alerted.size()];
+        Integer[] thresholds = new Integer[alerted.size()];
+        java.sql.Date[] expiryDates = new java.sql.Date[alerted.size()];
+        for (int i = 0; i < alerted.size(); i++) {
+            ids[i] = alerted.get(i).getId();
+            thresholds[i] = alerted.get(i).getThresholdDays();
+            expiryDates[i] = java.sql.Date.valueOf(alerted.get(i).getExpiryDate());
+        }
+
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement insert = connection.prepareStatement(RECORD_ALERTS_SQL)) {
+                insert.setArray(1, connection.createArrayOf("uuid", ids));
+                insert.setArray(2, connection.createArrayOf("int4", thresholds));
+                insert.setArray(3, connection.createArrayOf("date", expiryDates));
+                insert.executeUpdate();
+            }
+        });
+    }
+
+    @Override
+    public StagedImportResult importViaCopy(UUID userId, Iterable<StockItemRequest> rows) {
+        Session session = entityManager.unwrap(Session.class);
+        // Pending entity changes must reach the database before the merge reads it
+        session.flush();
+
+        UUID batchId = UUID.randomUUID();
+        return session.doReturningWork(connection -> {
+            long staged = copyToStaging(connection, batchId, rows);
+
+            long inserted;
+            long quantity;
+            try (PreparedStatement merge = connection.prepareStatement(MERGE_SQL)) {
+                merge.setObject(1, userId);
+                merge.setObject(2, batchId);
+                merge.setObject(3, batchId);
+                try (ResultSet rs = merge.executeQuery()) {
+                    rs.next();
+                    inserted = rs.getLong(1);
+                    quantity = rs.getLong(2);
+                }
+            }
+
+            try (PreparedStatement cleanup = connection
+                    .prepareStatement("DELETE FROM stock_import_staging WHERE batch_id = ?")) {
+                cleanup.setObject(1, batchId);
+                cleanup.executeUpdate();
+            }
+            return new StagedImportResult(staged, inserted, quantity);
+        });
+    }
+
+    // A field sent in the patch replaces the stored value, null included;
+    // a field left out of the patch (its *_set flag false) keeps it
+    static final String PATCH_SQL = """
+            UPDATE stock_items s
+            SET ubb_code = CASE WHEN v.ubb_code_set THEN v.ubb_code ELSE s.ubb_code END,
+                expiry_date = CASE WHEN v.expiry_date_set THEN v.expiry_date ELSE s.expiry_date END,
+                date_added = COALESCE(v.date_added, s.date_added),
+                from_field = CASE WHEN v.from_field_set THEN v.from_field ELSE s.from_field END,
+                to_field = CASE WHEN v.to_field_set THEN v.to_field ELSE s.to_field END,
+                material_code = CASE WHEN v.material_code_set THEN v.material_code ELSE s.material_code END,
+                version = s.version + 1,
+                updated_at = CURRENT_TIMESTAMP
+            FROM unnest(?::uuid[], ?::text[], ?::date[], ?::date[], ?::text[], ?::text[], ?::text[],
+                    ?::boolean[], ?::boolean[], ?::boolean[], ?::boolean[], ?::boolean[])
+                AS v(id, ubb_code, expiry_date, date_added, from_field, to_field, material_code,
+                    ubb_code_set, expiry_date_set, from_field_set, to_field_set, material_code_set)
+            WHERE s.id = v.id
+              AND s.user_id = ?
+            RETURNING s.id
+            """;
+
+    @Override
+    public List<UUID> patchStock(UUID userId, List<StockItemPatchRequest> patches) {
+        Session session = entityManager.unwrap(Session.class);
+        session.flush();
+
+        return session.doReturningWork(connection -> patchStock(connection, userId, patches));
+    }
+
+    static List<UUID> patchStock(Connection connection, UUID userId, List<StockItemPatchRequest> patches)
+            throws SQLException {
+        int n = patches.size();
+        UUID[] ids = new UUID[n];
+        String[] ubbCodes = new String[n];
+        java.sql.Date[] expiryDates = new java.sql.Date[n];
+        java.sql.Date[] datesAdded = new java.sql.Date[n];
+        String[] fromFields = new String[n];
+        String[] toFields = new String[n];
+        String[] materialCodes = new String[n];
+        Boolean[] ubbCodesSet = new Boolean[n];
+        Boolean[] expiryDatesSet = new Boolean[n];
+        Boolean[] fromFieldsSet = new Boolean[n];
+        Boolean[] toFieldsSet = new Boolean[n];
+        Boolean[] materialCodesSet = new Boolean[n];
+        for (int i = 0; i < n; i++) {
+            StockItemPatchRequest patch = patches.get(i);
+            ids[i] = patch.getId();
+            ubbCodes[i] = patch.getUbbCode();
+            expiryDates[i] = patch.getExpiryDate() != null ? java.sql.Date.valueOf(patch.getExpiryDate()) : null;
+            datesAdded[i] = patch.getDateAdded() != null ? java.sql.Date.valueOf(patch.getDateAdded()) : null;
+            fromFields[i] = patch.getFromField();
+            toFields[i] = patch.getToField();
+            materialCodes[i] = patch.getMaterialCode();
+            ubbCodesSet[i] = patch.hasUbbCode();
+            expiryDatesSet[i] = patch.hasExpiryDate();
+            fromFieldsSet[i] = patch.hasFromField();
+            toFieldsSet[i] = patch.hasToField();
+            materialCodesSet[i] = patch.hasMaterialCode();
+        }
+
+        List<UUID> updated = new ArrayList<>(n);
+        try (PreparedStatement update = connection.prepareStatement(PATCH_SQL)) {
+            update.setArray(1, connection.createArrayOf("uuid", ids));
+            update.setArray(2, connection.createArrayOf("text", ubbCodes));
+            update.setArray(3, connection.createArrayOf("date", expiryDates));
+            update.setArray(4, connection.createArrayOf("date", datesAdded));
+            update.setArray(5, connection.createArrayOf("text", fromFields));
+            update.setArray(6, connection.createArrayOf("text", toFields));
+            update.setArray(7, connection.createArrayOf("text", materialCodes));
+            update.setArray(8, connection.createArrayOf("boolean", ubbCodesSet));
+            update.setArray(9, connection.createArrayOf("boolean", expiryDatesSet));
+            update.setArray(10, connection.createArrayOf("boolean", fromFieldsSet));
+            update.setArray(11, connection.createArrayOf("boolean", toFieldsSet));
+            update.setArray(12, connection.createArrayOf("boolean", materialCodesSet));
+            update.setObject(13, userId);
+            try (ResultSet rs = update.executeQuery()) {
+                while (rs.next()) {
+                    updated.add(rs.getObject(1, UUID.class));
+                }
+            }
+        }
+        return updated;
+    }
+
+    @Override
+    public void flushAndClear() {
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private long copyToStaging(Connection connection, UUID batchId, Iterable<StockItemRequest> rows)
+            throws SQLException {
+        CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SQL);
+        try {
+            StringBuilder buffer = new StringBuilder(COPY_BUFFER_SIZE + 1024);
+            int lineNo = 0;
+            for (StockItemRequest row : rows) {
+                buffer.append(batchId).append(',')
+                        .append(lineNo++).append(',');
+                appendText(buffer, row.getMaterialName()).append(',');
+                appendText(buffer, row.getSerialLotNumber()).append(',');
+                appendText(buffer, row.getUbbCode()).append(',');
+                appendDate(buffer, row.getExpiryDate()).append(',');
+                buffer.append(row.getQuantity() != null ? row.getQuantity() : 0).append(',');
+                appendDate(buffer, row.getDateAdded()).append(',');
+                appendText(buffer, row.getFromField()).append(',');
+                appendText(buffer, row.getToField()).append(',');
+                appendText(buffer, row.getMaterialCode()).append('\n');
+
+                if (buffer.length() >= COPY_BUFFER_SIZE) {
+                    write(copyIn, buffer);
+                }
+            }
+            write(copyIn, buffer);
+            return copyIn.endCopy();
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+
+    private static void write(CopyIn copyIn, StringBuilder buffer) throws SQLException {
+        if (buffer.length() == 0) {
+            return;
+        }
+        byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+        copyIn.writeToCopy(bytes, 0, bytes.length);
+        buffer.setLength(0);
+    }
+
+    /** CSV field: unquoted empty is NULL, anything else is quoted with inner quotes doubled. */
+    private static StringBuilder appendText(StringBuilder buffer, String value) {
+        if (value == null) {
+            return buffer;
+        }
+        return buffer.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+
+    private static StringBuilder appendDate(StringBuilder buffer, LocalDate value) {
+        return value != null ? buffer.append(value) : buffer;
+    }
+}
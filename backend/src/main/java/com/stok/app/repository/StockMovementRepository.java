@@ -0,0 +1,89 @@
+package com.stok.app.repository;
+
+import com.stok.app.entity.StockMovement;
+import com.stok.app.repository.projection.StockBalanceRow;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * StockMovement Repository - the ledger and its balance checkpoints
+ */
+@Repository
+public interface StockMovementRepository extends JpaRepository<StockMovement, UUID> {
+
+    /**
+     * Non-zero balances of the user's lots at the end of the given day: the
+     * latest checkpoint up to then plus the movements after it.
+     */
+    @Query(value = """
+            WITH cp AS (
+                SELECT MAX(checkpoint_at) AS at
+                FROM stock_balance_checkpoints
+                WHERE user_id = :userId AND checkpoint_at <= CAST(:day AS date) + 1
+            )
+            SELECT
+                b.material_name AS materialName,
+                b.serial_lot_number AS serialLotNumber,
+                SUM(b.quantity) AS quantity
+            FROM (
+                SELECT c.material_name, c.serial_lot_number, c.quantity
+                FROM stock_balance_checkpoints c
+                JOIN cp ON c.checkpoint_at = cp.at
+                WHERE c.user_id = :userId
+                UNION ALL
+                SELECT m.material_name, m.serial_lot_number, m.quantity_delta
+                FROM stock_movements m
+                CROSS JOIN cp
+                WHERE m.user_id = :userId
+                  AND m.occurred_at < CAST(:day AS date) + 1
+                  AND (cp.at IS NULL OR m.occurred_at >= cp.at)
+            ) b
+            GROUP BY b.material_name, b.serial_lot_number
+            HAVING SUM(b.quantity) <> 0
+            ORDER BY b.material_name, b.serial_lot_number
+            """, nativeQuery = true)
+    List<StockBalanceRow> findBalancesAt(@Param("userId") UUID userId, @Param("day") LocalDate day);
+
+    /**
+     * Writes the checkpoint for the start of the current day for every user,
+     * rolling each user's previous checkpoint forward with the movements in
+     * between. Re-running it for the same day changes nothing.
+     *
+     * @return number of checkpoint rows written
+     */
+    @Modifying
+    @Query(value = """
+            WITH prev AS (
+                SELECT user_id, MAX(checkpoint_at) AS at
+                FROM stock_balance_checkpoints
+                WHERE checkpoint_at < date_trunc('day', LOCALTIMESTAMP)
+                GROUP BY user_id
+            )
+            INSERT INTO stock_balance_checkpoints
+                (user_id, checkpoint_at, material_name, serial_lot_number, quantity)
+            SELECT b.user_id, date_trunc('day', LOCALTIMESTAMP), b.material_name, b.serial_lot_number,
+                SUM(b.quantity)
+            FROM (
+                SELECT c.user_id, c.material_name, c.serial_lot_number, c.quantity
+                FROM stock_balance_checkpoints c
+                JOIN prev p ON p.user_id = c.user_id AND p.at = c.checkpoint_at
+                UNION ALL
+                SELECT m.user_id, m.material_name, m.serial_lot_number, m.quantity_delta
+                FROM stock_movements m
+                LEFT JOIN prev p ON p.user_id = m.user_id
+                WHERE m.occurred_at < date_trunc('day', LOCALTIMESTAMP)
+                  AND (p.at IS NULL OR m.occurred_at >= p.at)
+            ) b
+            GROUP BY b.user_id, b.material_name, b.serial_lot_number
+            HAVING SUM(b.quantity) <> 0
+            ON CONFLICT DO NOTHING
+            """, nativeQuery = true)
+    int createDailyCheckpoint();
+}
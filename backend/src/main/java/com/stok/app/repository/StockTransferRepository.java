@@ -0,0 +1,34 @@
+package com.stok.app.repository;
+
+import com.stok.app.entity.NotificationActionStatus;
+import com.stok.app.entity.StockTransfer;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface StockTransferRepository extends JpaRepository<StockTransfer, UUID> {
+
+    @Query("SELECT DISTINCT t FROM StockTransfer t LEFT JOIN FETCH t.items "
+            + "WHERE t.receiverId = :receiverId AND t.status = :status ORDER BY t.createdAt DESC")
+    List<StockTransfer> findWithItemsByReceiverIdAndStatus(
+            @Param("receiverId") UUID receiverId,
+            @Param("status") NotificationActionStatus status);
+
+    /**
+     * Moves the transfer from one status to another only if it is still in the
+     * expected one. Returns 0 when another request already processed it.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE StockTransfer t SET t.status = :to, t.processedAt = CURRENT_TIMESTAMP "
+            + "WHERE t.id = :id AND t.status = :from")
+    int transitionStatus(
+            @Param("id") UUID id,
+            @Param("from") NotificationActionStatus from,
+            @Param("to") NotificationActionStatus to);
+}
@@ -0,0 +1,29 @@
+package com.stok.app.repository;
+
+import com.stok.app.entity.SyncOperation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.UUID;
+
+@Repository
+public interface SyncOperationRepository extends JpaRepository<SyncOperation, UUID> {
+
+    /**
+     * Claims the operation id for the user.
+     *
+     * @return 1 if claimed, 0 if it was applied before
+     */
+    @Modifying
+    @Query(value = "INSERT INTO sync_operations (user_id, client_operation_id) VALUES (:userId, :operationId) "
+            + "ON CONFLICT (user_id, client_operation_id) DO NOTHING", nativeQuery = true)
+    int claim(@Param("userId") UUID userId, @Param("operationId") String operationId);
+
+    @Modifying
+    @Query(value = "DELETE FROM sync_operations WHERE applied_at < LOCALTIMESTAMP - :retentionDays * INTERVAL '1 day'",
+            nativeQuery = true)
+    int purgeOlderThan(@Param("retentionDays") int retentionDays);
+}
@@ -0,0 +1,24 @@
+package com.stok.app.repository.projection;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * A stock item that has crossed an expiry threshold it was not alerted for yet.
+ */
+public interface ExpiryAlertCandidate {
+    UUID getId();
+
+    UUID getUserId();
+
+    String getMaterialName();
+
+    String getSerialLotNumber();
+
+    LocalDate getExpiryDate();
+
+    Integer getQuantity();
+
+    /** Tightest threshold (7, 30 or 90 days) the item is within */
+    Integer getThresholdDays();
+}
@@ -0,0 +1,35 @@
+package com.stok.app.repository.projection;
+
+/**
+ * Aggregated stock totals of one material, as computed by the database.
+ */
+public class MaterialTotalRow {
+
+    private final String prefix;
+    private final String materialName;
+    private final long totalQuantity;
+    private final long itemCount;
+
+    public MaterialTotalRow(String prefix, String materialName, Long totalQuantity, Long itemCount) {
+        this.prefix = prefix;
+        this.materialName = materialName;
+        this.totalQuantity = totalQuantity != null ? totalQuantity : 0L;
+        this.itemCount = itemCount != null ? itemCount : 0L;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public String getMaterialName() {
+        return materialName;
+    }
+
+    public long getTotalQuantity() {
+        return totalQuantity;
+    }
+
+    public long getItemCount() {
+        return itemCount;
+    }
+}
@@ -0,0 +1,13 @@
+package com.stok.app.repository.projection;
+
+/**
+ * Stored counters of one material prefix (stock_summary), or the items of a
+ * prefix expiring in a window.
+ */
+public interface PrefixSummaryRow {
+    String getPrefix();
+
+    Long getItemCount();
+
+    Long getUnitCount();
+}
@@ -0,0 +1,34 @@
+package com.stok.app.repository.projection;
+
+/**
+ * Outcome of merging one staged import batch into stock_items.
+ */
+public class StagedImportResult {
+
+    private final long stagedCount;
+    private final long insertedCount;
+    private final long insertedQuantity;
+
+    public StagedImportResult(long stagedCount, long insertedCount, long insertedQuantity) {
+        this.stagedCount = stagedCount;
+        this.insertedCount = insertedCount;
+        this.insertedQuantity = insertedQuantity;
+    }
+
+    public long getStagedCount() {
+        return stagedCount;
+    }
+
+    public long getInsertedCount() {
+        return insertedCount;
+    }
+
+    public long getInsertedQuantity() {
+        return insertedQuantity;
+    }
+
+    /** Rows that already existed for the user or repeated an earlier row of the batch */
+    public long getSkippedCount() {
+        return stagedCount - insertedCount;
+    }
+}
@@ -0,0 +1,12 @@
+package com.stok.app.repository.projection;
+
+/**
+ * Balance of one lot at a point in time, computed from the movement ledger.
+ */
+public interface StockBalanceRow {
+    String getMaterialName();
+
+    String getSerialLotNumber();
+
+    Long getQuantity();
+}
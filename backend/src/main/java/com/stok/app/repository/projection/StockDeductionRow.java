@@ -0,0 +1,37 @@
+package com.stok.app.repository.projection;
+
+import java.util.UUID;
+
+/**
+ * A stock row after a quantity deduction, with the quantity left on it.
+ */
+public class StockDeductionRow {
+
+    private final UUID id;
+    private final String materialName;
+    private final String serialLotNumber;
+    private final int remainingQuantity;
+
+    public StockDeductionRow(UUID id, String materialName, String serialLotNumber, int remainingQuantity) {
+        this.id = id;
+        this.materialName = materialName;
+        this.serialLotNumber = serialLotNumber;
+        this.remainingQuantity = remainingQuantity;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public String getMaterialName() {
+        return materialName;
+    }
+
+    public String getSerialLotNumber() {
+        return serialLotNumber;
+    }
+
+    public int getRemainingQuantity() {
+        return remainingQuantity;
+    }
+}
@@ -0,0 +1,37 @@
+package com.stok.app.repository.projection;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+public interface StockItemRowProjection {
+    UUID getId();
+
+    String getMaterialName();
+
+    String getSerialLotNumber();
+
+    String getUbbCode();
+
+    LocalDate getExpiryDate();
+
+    Integer getQuantity();
+
+    LocalDate getDateAdded();
+
+    String getFromField();
+
+    String getToField();
+
+    String getMaterialCode();
+
+    String getOwnerName();
+
+    UUID getOwnerId();
+
+    LocalDateTime getCreatedAt();
+
+    LocalDateTime getUpdatedAt();
+
+    Long getVersion();
+}
@@ -0,0 +1,10 @@
+package com.stok.app.repository.projection;
+
+/**
+ * (material name, serial/lot number) pair of an existing stock row.
+ */
+public interface StockKeyProjection {
+    String getMaterialName();
+
+    String getSerialLotNumber();
+}
@@ -19,10 +19,11 @@ public class StockSpecification {
             List<Predicate> predicates = new ArrayList<>();
 
             // Text search (Material Name or Serial/Lot Number)
+            // LOWER(col) LIKE matches the expression of the trigram indexes (V10)
             if (search != null && !search.trim().isEmpty()) {
-                String likePattern = "%" + search.toLowerCase() + "%";
-                Predicate nameMatch = cb.like(cb.lower(root.get("materialName")), likePattern);
-                Predicate serialMatch = cb.like(cb.lower(root.get("serialLotNumber")), likePattern);
+                String likePattern = "%" + escapeLike(search.trim().toLowerCase()) + "%";
+                Predicate nameMatch = cb.like(cb.lower(root.get("materialName")), likePattern, '\\');
+                Predicate serialMatch = cb.like(cb.lower(root.get("serialLotNumber")), likePattern, '\\');
                 predicates.add(cb.or(nameMatch, serialMatch));
             }
 
@@ -45,4 +46,15 @@ public class StockSpecification {
             return cb.and(predicates.toArray(new Predicate[0]));
         };
     }
+
+    /**
+     * Escapes LIKE wildcards so user input is matched literally.
+     */
+    public static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    public static Specification<StockItem> hasMaterialName(String materialName) {
+        return (root, query, cb) -> cb.equal(root.get("materialName"), materialName);
+    }
 }
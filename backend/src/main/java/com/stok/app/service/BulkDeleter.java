@@ -0,0 +1,45 @@
+package com.stok.app.service;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Runs a set-based DELETE in bounded chunks, each in its own short
+ * transaction, so a large delete never holds its row locks (or the request
+ * thread's connection) for the whole operation. Dependent rows are removed by
+ * the ON DELETE CASCADE foreign keys.
+ *
+ * A failure part-way leaves the already committed chunks deleted; deleting
+ * "everything" again simply finishes the job.
+ */
+@Component
+public class BulkDeleter {
+
+    static final int CHUNK_SIZE = 1_000;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public BulkDeleter(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * @param deleteChunk deletes at most the given number of rows and returns how many it deleted
+     * @return total number of rows deleted
+     */
+    public long deleteInChunks(IntUnaryOperator deleteChunk) {
+        long total = 0;
+        int deleted;
+        do {
+            Integer result = transactionTemplate.execute(status -> deleteChunk.applyAsInt(CHUNK_SIZE));
+            deleted = result != null ? result : 0;
+            total += deleted;
+        } while (deleted == CHUNK_SIZE);
+        return total;
+    }
+}
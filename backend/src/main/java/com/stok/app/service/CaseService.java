@@ -44,6 +44,7 @@ public class CaseService {
     private final UserRepository userRepository;
     private final HistoryService historyService;
     private final StockService stockService;
+    private final BulkDeleter bulkDeleter;
     private static final java.time.format.DateTimeFormatter EXPORT_DATE_FORMATTER = java.time.format.DateTimeFormatter
             .ofPattern("dd.MM.yyyy");
 
@@ -107,10 +108,12 @@ public class CaseService {
                 })
                 .collect(Collectors.toList());
 
-        stockService.removeStockItems(removeRequests, userId);
-
+        // Saved first so the ledger movements can reference the case
         CaseRecord saved = caseRecordRepository.save(caseRecord);
 
+        stockService.removeStockItems(removeRequests, userId,
+                com.stok.app.entity.StockMovementType.CASE_USE, saved.getId());
+
         // Add history record
         Map<String, Object> details = new HashMap<>();
         details.put("hospitalName", saved.getHospitalName());
@@ -192,11 +195,18 @@ public class CaseService {
         log.info("Case record deleted: {}", id);
     }
 
-    public void deleteAllCases(UUID userId) {
+    /**
+     * Deletes all of the user's cases in committed chunks; their materials go
+     * with them through ON DELETE CASCADE.
+     *
+     * @return number of deleted case records
+     */
+    @Transactional(propagation = org.springframework.transaction.annotation.Propagation.NOT_SUPPORTED)
+    public long deleteAllCases(UUID userId) {
         log.debug("Deleting all cases for user: {}", userId);
-        List<CaseRecord> userCases = caseRecordRepository.findByUserId(userId);
-        caseRecordRepository.deleteAll(userCases);
-        log.info("All cases deleted for user: {}", userId);
+        long deleted = bulkDeleter.deleteInChunks(limit -> caseRecordRepository.deleteChunkByUserId(userId, limit));
+        log.info("All cases deleted for user: {} ({} rows)", userId, deleted);
+        return deleted;
     }
 
     public byte[] exportImplantList(java.time.LocalDate startDate, java.time.LocalDate endDate, UUID userId) {
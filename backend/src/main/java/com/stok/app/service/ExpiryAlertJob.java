@@ -0,0 +1,36 @@
+package com.stok.app.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * Daily scan for items approaching their expiry date. Every batch commits on
+ * its own, so an interrupted run resumes from the watermark on the next run.
+ */
+@Component
+@ConditionalOnProperty(name = "expiry-alerts.enabled", havingValue = "true", matchIfMissing = true)
+public class ExpiryAlertJob {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(ExpiryAlertJob.class);
+
+    private final ExpiryAlertService expiryAlertService;
+
+    public ExpiryAlertJob(ExpiryAlertService expiryAlertService) {
+        this.expiryAlertService = expiryAlertService;
+    }
+
+    @Scheduled(cron = "${expiry-alerts.cron:0 0 6 * * *}")
+    public void run() {
+        LocalDate today = LocalDate.now();
+        long total = 0;
+        int alerted;
+        do {
+            alerted = expiryAlertService.alertNextBatch(today);
+            total += alerted;
+        } while (alerted == ExpiryAlertService.BATCH_SIZE);
+        log.info("Expiry alert run finished: {} items alerted", total);
+    }
+}
@@ -0,0 +1,88 @@
+package com.stok.app.service;
+
+import com.stok.app.entity.Notification;
+import com.stok.app.entity.NotificationType;
+import com.stok.app.repository.StockItemRepository;
+import com.stok.app.repository.projection.ExpiryAlertCandidate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Finds stock items that crossed the 90/30/7-day expiry thresholds and
+ * notifies their owners, one summary notification per user and batch.
+ * Each item is alerted once per threshold; stock_expiry_alerts holds the
+ * tightest threshold already sent.
+ */
+@Service
+@Transactional
+@RequiredArgsConstructor
+public class ExpiryAlertService {
+
+    static final int BATCH_SIZE = 500;
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(ExpiryAlertService.class);
+
+    private final StockItemRepository stockItemRepository;
+    private final NotificationService notificationService;
+
+    /**
+     * Alerts the next batch of candidates and records their watermark.
+     *
+     * @return number of items alerted; 0 once nothing is left to alert
+     */
+    public int alertNextBatch(LocalDate today) {
+        List<ExpiryAlertCandidate> candidates = stockItemRepository.findExpiryAlertCandidates(
+                today, today.plusDays(7), today.plusDays(30), today.plusDays(90), BATCH_SIZE);
+        if (candidates.isEmpty()) {
+            return 0;
+        }
+
+        Map<UUID, List<ExpiryAlertCandidate>> byUser = new LinkedHashMap<>();
+        for (ExpiryAlertCandidate candidate : candidates) {
+            byUser.computeIfAbsent(candidate.getUserId(), k -> new ArrayList<>()).add(candidate);
+        }
+
+        List<Notification> notifications = new ArrayList<>(byUser.size());
+        byUser.forEach((userId, items) -> notifications.add(toNotification(userId, items, today)));
+        notificationService.createNotifications(notifications);
+        stockItemRepository.recordExpiryAlerts(candidates);
+
+        log.info("Sent expiry alerts for {} items to {} users", candidates.size(), byUser.size());
+        return candidates.size();
+    }
+
+    private Notification toNotification(UUID userId, List<ExpiryAlertCandidate> items, LocalDate today) {
+        StringBuilder content = new StringBuilder();
+        for (ExpiryAlertCandidate item : items) {
+            long daysLeft = ChronoUnit.DAYS.between(today, item.getExpiryDate());
+            if (content.length() > 0) {
+                content.append('\n');
+            }
+            content.append(item.getMaterialName())
+                    .append(" (").append(item.getSerialLotNumber()).append(") - ")
+                    .append(item.getExpiryDate().format(DATE_FORMAT))
+                    .append(" (").append(daysLeft).append(" gün, ")
+                    .append(item.getQuantity()).append(" adet)");
+        }
+
+        return Notification.builder()
+                .receiverId(userId)
+                .type(NotificationType.EXPIRY_ALERT)
+                .title(items.size() + " malzemenin son kullanma tarihi yaklaşıyor")
+                .content(content.toString())
+                .actionStatus(null)
+                .build();
+    }
+}
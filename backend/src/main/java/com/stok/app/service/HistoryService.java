@@ -32,6 +32,7 @@ public class HistoryService {
     private final HistoryRecordRepository historyRecordRepository;
     private final UserRepository userRepository;
     private final CaseRecordRepository caseRecordRepository;
+    private final BulkDeleter bulkDeleter;
 
     public List<HistoryRecordResponse> getAllHistory(
             UUID effectiveUserId,
@@ -74,6 +75,40 @@ public class HistoryService {
         log.info("History record added: {}", type);
     }
 
+    /**
+     * Adds several history records of the same user and type with a single user
+     * lookup and one batched insert.
+     */
+    public void addHistories(UUID userId, String type, List<Entry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        log.debug("Adding {} history records for user: {}, type: {}", entries.size(), userId, type);
+
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+
+        LocalDateTime now = LocalDateTime.now();
+        List<HistoryRecord> records = entries.stream().map(entry -> {
+            HistoryRecord record = new HistoryRecord();
+            record.setUser(user);
+            record.setRecordDate(now);
+            record.setType(type);
+            record.setDescription(entry.description());
+            record.setDetailsJson(entry.details());
+            return record;
+        }).collect(Collectors.toList());
+
+        historyRecordRepository.saveAll(records);
+        log.info("History records added: {} x {}", entries.size(), type);
+    }
+
+    /**
+     * Description and details of one record passed to {@link #addHistories}.
+     */
+    public record Entry(String description, Map<String, Object> details) {
+    }
+
     public void deleteHistory(UUID id, UUID userId) {
         log.debug("Deleting history record: {}", id);
 
@@ -88,17 +123,24 @@ public class HistoryService {
         log.info("History record deleted: {}", id);
     }
 
-    public void deleteAllHistory(UUID userId) {
+    /**
+     * Deletes all of the user's history records, and with them their case
+     * records, in committed chunks.
+     *
+     * @return number of deleted history records
+     */
+    @Transactional(propagation = org.springframework.transaction.annotation.Propagation.NOT_SUPPORTED)
+    public long deleteAllHistory(UUID userId) {
         log.debug("Deleting all history for user: {}", userId);
 
         // As requested, deleting history also deletes all associated case records
         // Using repository directly to avoid circular dependency with CaseService
-        List<CaseRecord> userCases = caseRecordRepository.findByUserId(userId);
-        caseRecordRepository.deleteAll(userCases);
+        long cases = bulkDeleter.deleteInChunks(limit -> caseRecordRepository.deleteChunkByUserId(userId, limit));
 
-        List<HistoryRecord> userHistory = historyRecordRepository.findByUserIdOrderByRecordDateDesc(userId);
-        historyRecordRepository.deleteAll(userHistory);
-        log.info("All history records (and cases) deleted for user: {}", userId);
+        long deleted = bulkDeleter.deleteInChunks(
+                limit -> historyRecordRepository.deleteChunkByUserId(userId, limit));
+        log.info("All history records ({}) and cases ({}) deleted for user: {}", deleted, cases, userId);
+        return deleted;
     }
 
     public void deleteMostRecentHistoryByTypeAndDescription(UUID userId, String type, String descriptionPart) {
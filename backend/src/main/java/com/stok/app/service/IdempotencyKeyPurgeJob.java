@@ -0,0 +1,24 @@
+package com.stok.app.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Drops idempotency keys whose TTL has run out.
+ */
+@Component
+@ConditionalOnProperty(name = "idempotency.purge-enabled", havingValue = "true", matchIfMissing = true)
+public class IdempotencyKeyPurgeJob {
+
+    private final IdempotencyService idempotencyService;
+
+    public IdempotencyKeyPurgeJob(IdempotencyService idempotencyService) {
+        this.idempotencyService = idempotencyService;
+    }
+
+    @Scheduled(cron = "${idempotency.purge-cron:0 30 * * * *}")
+    public void run() {
+        idempotencyService.purgeExpiredKeys();
+    }
+}
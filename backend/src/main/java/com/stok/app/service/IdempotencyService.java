@@ -0,0 +1,189 @@
+package com.stok.app.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stok.app.dto.response.ApiResponse;
+import com.stok.app.entity.IdempotencyKey;
+import com.stok.app.repository.IdempotencyKeyRepository;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Honors the Idempotency-Key header of retried writes.
+ *
+ * The key is claimed and its response stored in the same transaction as the
+ * write, so a key exists exactly when its write has committed. A retry with
+ * the same key and request gets the stored response back without running the
+ * write again; recent responses are also kept in memory, so a quick retry
+ * does not touch the database at all.
+ */
+@Service
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    static final int KEY_TTL_HOURS = 24;
+    static final int MAX_KEY_LENGTH = 100;
+
+    private static final int FRONT_CACHE_MAX_ENTRIES = 1000;
+    private static final long FRONT_CACHE_TTL_MS = 5 * 60 * 1000L;
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(IdempotencyService.class);
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<String, StoredResponse> frontCache = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, StoredResponse> eldest) {
+            return size() > FRONT_CACHE_MAX_ENTRIES;
+        }
+    };
+
+    public IdempotencyService(IdempotencyKeyRepository idempotencyKeyRepository,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Runs the write once per key.
+     *
+     * @param userId   owner of the key
+     * @param key      Idempotency-Key header, or null to just run the write
+     * @param endpoint name of the endpoint, so a key cannot be reused across endpoints
+     * @param request  request body, compared with the one the key was first used for
+     * @param dataType type of the response data, used to rebuild a stored response
+     * @param action   the write; it joins the transaction that records the key
+     */
+    public <T> ResponseEntity<ApiResponse<T>> execute(UUID userId, String key, String endpoint, Object request,
+            Class<T> dataType, Supplier<ResponseEntity<ApiResponse<T>>> action) {
+        return executeStreamed(userId, key, endpoint, () -> sha256(write(request)), dataType, action);
+    }
+
+    /**
+     * Like {@link #execute}, for a request body the write reads as a stream.
+     * The body digest is taken after the write has consumed the body, or
+     * instead of the write when the key was already used.
+     *
+     * @param bodyDigest digest of the raw request body
+     */
+    public <T> ResponseEntity<ApiResponse<T>> executeStreamed(UUID userId, String key, String endpoint,
+            Supplier<String> bodyDigest, Class<T> dataType, Supplier<ResponseEntity<ApiResponse<T>>> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException(HEADER + " must be at most " + MAX_KEY_LENGTH + " characters");
+        }
+
+        String cacheKey = userId + "|" + key;
+        Supplier<String> requestHash = () -> sha256(endpoint + "|" + bodyDigest.get());
+
+        StoredResponse cached = cached(cacheKey);
+        if (cached != null) {
+            return replay(cached, requestHash.get(), dataType);
+        }
+
+        return transactionTemplate.execute(tx -> {
+            if (idempotencyKeyRepository.claim(userId, key, KEY_TTL_HOURS) == 0) {
+                IdempotencyKey existing = idempotencyKeyRepository.findByUserIdAndIdempotencyKey(userId, key)
+                        .orElseThrow(() -> new IllegalStateException("Idempotency key vanished: " + key));
+                StoredResponse stored = new StoredResponse(existing.getRequestHash(), existing.getStatusCode(),
+                        existing.getResponseBody(), System.currentTimeMillis());
+                remember(cacheKey, stored);
+                return replay(stored, requestHash.get(), dataType);
+            }
+
+            ResponseEntity<ApiResponse<T>> response = action.get();
+            String hash = requestHash.get();
+            String body = write(response.getBody());
+            int statusCode = response.getStatusCode().value();
+            idempotencyKeyRepository.storeResponse(userId, key, hash, statusCode, body);
+
+            StoredResponse stored = new StoredResponse(hash, statusCode, body, System.currentTimeMillis());
+            TransactionHooks.afterCommit(() -> remember(cacheKey, stored));
+            return response;
+        });
+    }
+
+    @Transactional
+    public int purgeExpiredKeys() {
+        int purged = idempotencyKeyRepository.purgeOlderThan(KEY_TTL_HOURS);
+        log.info("Purged {} expired idempotency keys", purged);
+        return purged;
+    }
+
+    private <T> ResponseEntity<ApiResponse<T>> replay(StoredResponse stored, String requestHash, Class<T> dataType) {
+        if (!stored.requestHash().equals(requestHash)) {
+            throw new IllegalArgumentException(HEADER + " was already used for a different request");
+        }
+        log.debug("Replaying stored response for a retried request");
+        JavaType type = objectMapper.getTypeFactory().constructParametricType(ApiResponse.class, dataType);
+        try {
+            ApiResponse<T> body = objectMapper.readerFor(type)
+                    .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                    .readValue(stored.body());
+            return ResponseEntity.status(stored.statusCode())
+                    .header(REPLAYED_HEADER, "true")
+                    .body(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored response could not be read", e);
+        }
+    }
+
+    private StoredResponse cached(String cacheKey) {
+        synchronized (frontCache) {
+            StoredResponse stored = frontCache.get(cacheKey);
+            if (stored != null && System.currentTimeMillis() - stored.cachedAt() > FRONT_CACHE_TTL_MS) {
+                frontCache.remove(cacheKey);
+                return null;
+            }
+            return stored;
+        }
+    }
+
+    private void remember(String cacheKey, StoredResponse stored) {
+        synchronized (frontCache) {
+            frontCache.put(cacheKey, stored);
+        }
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private String write(Object body) {
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize to JSON", e);
+        }
+    }
+
+    private record StoredResponse(String requestHash, int statusCode, String body, long cachedAt) {
+    }
+}
@@ -29,6 +29,11 @@ public class NotificationService {
 
     public void createNotification(UUID senderId, UUID receiverId, NotificationType type, String title, String content,
             NotificationActionStatus actionStatus) {
+        createNotification(senderId, receiverId, type, title, content, actionStatus, null);
+    }
+
+    public void createNotification(UUID senderId, UUID receiverId, NotificationType type, String title, String content,
+            NotificationActionStatus actionStatus, UUID transferId) {
         log.info("Creating notification type: {} from {} to {}", type, senderId, receiverId);
 
         Notification notification = Notification.builder()
@@ -39,11 +44,20 @@ public class NotificationService {
                 .content(content)
                 .status(NotificationStatus.PENDING)
                 .actionStatus(actionStatus)
+                .transferId(transferId)
                 .build();
 
         notificationRepository.save(notification);
     }
 
+    /**
+     * Saves a batch of prepared notifications in one go (JDBC-batched).
+     */
+    public void createNotifications(List<Notification> notifications) {
+        log.info("Creating {} notifications", notifications.size());
+        notificationRepository.saveAll(notifications);
+    }
+
     public List<NotificationResponse> getUserNotifications(UUID userId) {
         return notificationRepository.findByReceiverIdOrderByCreatedAtDesc(userId).stream()
                 .map(this::mapToResponse)
@@ -93,6 +107,7 @@ public class NotificationService {
                 .type(notification.getType())
                 .title(notification.getTitle())
                 .content(notification.getContent())
+                .transferId(notification.getTransferId())
                 .status(notification.getStatus())
                 .actionStatus(notification.getActionStatus())
                 .createdAt(notification.getCreatedAt())
@@ -33,15 +33,18 @@ public class ProductItemService {
     private final ProductCustomFieldService productCustomFieldService;
     private final HistoryService historyService;
     private final UserRepository userRepository;
+    private final BulkDeleter bulkDeleter;
 
     public ProductItemService(ProductItemRepository productItemRepository,
             ProductCustomFieldService productCustomFieldService,
             HistoryService historyService,
-            UserRepository userRepository) {
+            UserRepository userRepository,
+            BulkDeleter bulkDeleter) {
         this.productItemRepository = productItemRepository;
         this.productCustomFieldService = productCustomFieldService;
         this.historyService = historyService;
         this.userRepository = userRepository;
+        this.bulkDeleter = bulkDeleter;
     }
 
     private UUID getCurrentUserId() {
@@ -157,7 +160,14 @@ public class ProductItemService {
         productItemRepository.deleteById(id);
     }
 
-    public void deleteAll() {
+    /**
+     * Deletes the whole catalog in committed chunks; custom fields go with the
+     * products through ON DELETE CASCADE.
+     *
+     * @return number of deleted products
+     */
+    @Transactional(propagation = org.springframework.transaction.annotation.Propagation.NOT_SUPPORTED)
+    public long deleteAll() {
         UUID currentUserId = getCurrentUserId();
         if (currentUserId != null) {
             historyService.addHistory(
@@ -166,7 +176,7 @@ public class ProductItemService {
                     "Tüm katalog ürünleri silindi",
                     new HashMap<>());
         }
-        productItemRepository.deleteAll();
+        return bulkDeleter.deleteInChunks(productItemRepository::deleteChunk);
     }
 
     public List<ProductItemResponse> bulkCreate(List<ProductItemRequest> requests) {
@@ -0,0 +1,26 @@
+package com.stok.app.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Nightly balance checkpoint for the stock ledger. It runs well after
+ * midnight so that no transaction writing movements dated before the
+ * checkpoint can still be in flight.
+ */
+@Component
+@ConditionalOnProperty(name = "stock-ledger.checkpoint-enabled", havingValue = "true", matchIfMissing = true)
+public class StockCheckpointJob {
+
+    private final StockMovementService stockMovementService;
+
+    public StockCheckpointJob(StockMovementService stockMovementService) {
+        this.stockMovementService = stockMovementService;
+    }
+
+    @Scheduled(cron = "${stock-ledger.checkpoint-cron:0 30 2 * * *}")
+    public void run() {
+        stockMovementService.createDailyCheckpoint();
+    }
+}
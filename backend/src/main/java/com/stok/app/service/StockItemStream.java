@@ -0,0 +1,135 @@
+package com.stok.app.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stok.app.dto.request.StockItemRequest;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Reads the JSON array of a bulk stock request one chunk at a time while the
+ * body is still arriving, so the whole payload is never held in memory. Rows
+ * are validated as they are read; the first invalid row fails the request
+ * with its index. The raw body is digested along the way for Idempotency-Key
+ * checks.
+ */
+public class StockItemStream implements Iterator<List<StockItemRequest>> {
+
+    private final DigestInputStream body;
+    private final JsonParser parser;
+    private final Validator validator;
+    private final int chunkSize;
+
+    private List<StockItemRequest> nextChunk;
+    private boolean started;
+    private boolean finished;
+    private int rowIndex;
+
+    StockItemStream(InputStream body, ObjectMapper objectMapper, Validator validator, int chunkSize) {
+        try {
+            this.body = new DigestInputStream(body, MessageDigest.getInstance("SHA-256"));
+            this.parser = objectMapper.createParser(this.body);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.validator = validator;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (nextChunk == null && !finished) {
+            nextChunk = readChunk();
+        }
+        return nextChunk != null && !nextChunk.isEmpty();
+    }
+
+    @Override
+    public List<StockItemRequest> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        List<StockItemRequest> chunk = nextChunk;
+        nextChunk = null;
+        return chunk;
+    }
+
+    /**
+     * Number of rows read so far.
+     */
+    public int rowCount() {
+        return rowIndex;
+    }
+
+    /**
+     * SHA-256 of the raw body. Reads whatever is left of it first, so the
+     * digest also covers a body that was not imported (e.g. a replayed retry).
+     */
+    public String digest() {
+        try {
+            body.transferTo(java.io.OutputStream.nullOutputStream());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return HexFormat.of().formatHex(body.getMessageDigest().digest());
+    }
+
+    private List<StockItemRequest> readChunk() {
+        try {
+            if (!started) {
+                started = true;
+                if (parser.nextToken() != JsonToken.START_ARRAY) {
+                    throw new IllegalArgumentException("Request body must be a JSON array of stock items");
+                }
+            }
+            List<StockItemRequest> chunk = new ArrayList<>(chunkSize);
+            while (chunk.size() < chunkSize) {
+                JsonToken token = parser.nextToken();
+                if (token == JsonToken.END_ARRAY || token == null) {
+                    finished = true;
+                    break;
+                }
+                if (token != JsonToken.START_OBJECT) {
+                    throw new IllegalArgumentException("Row " + rowIndex + " is not a stock item object");
+                }
+                StockItemRequest row = parser.readValueAs(StockItemRequest.class);
+                validate(row);
+                chunk.add(row);
+                rowIndex++;
+            }
+            return chunk;
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed JSON at row " + rowIndex + ": " + e.getOriginalMessage());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void validate(StockItemRequest row) {
+        Set<ConstraintViolation<StockItemRequest>> violations = validator.validate(row);
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException("Row " + rowIndex + ": " + violations.stream()
+                    .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", ")));
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.stok.app.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validator;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+
+/**
+ * Opens {@link StockItemStream}s over bulk stock request bodies.
+ */
+@Component
+public class StockItemStreamReader {
+
+    // Multiple of hibernate.jdbc.batch_size, so every flush sends full batches
+    static final int CHUNK_SIZE = 500;
+
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+
+    public StockItemStreamReader(ObjectMapper objectMapper, Validator validator) {
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+    }
+
+    public StockItemStream open(InputStream body) {
+        return new StockItemStream(body, objectMapper, validator, CHUNK_SIZE);
+    }
+}
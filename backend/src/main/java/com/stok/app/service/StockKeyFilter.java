@@ -0,0 +1,173 @@
+package com.stok.app.service;
+
+import com.stok.app.dto.response.StockItemResponse;
+import com.stok.app.repository.projection.StockKeyProjection;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiPredicate;
+import java.util.function.Supplier;
+
+/**
+ * Per-user Bloom filter over the (material name, serial/lot number) pairs a
+ * user holds, in front of the duplicate checks.
+ *
+ * A pair the filter rejects is definitely not in the user's stock, so only
+ * possible hits are confirmed in the database. Like {@link StockSearchIndex},
+ * a filter is built on first use and kept current by the StockService
+ * mutation paths after commit. Bloom filters cannot forget, so removed rows
+ * stay in as false positives until the filter is rebuilt; a filter that
+ * outgrows its capacity is dropped and rebuilt larger on the next check.
+ */
+@Component
+public class StockKeyFilter {
+
+    private static final int MAX_USERS = 256;
+    private static final int MIN_CAPACITY = 1024;
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private final Map<UUID, BloomFilter> filters = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<UUID, BloomFilter> eldest) {
+            return size() > MAX_USERS;
+        }
+    };
+
+    // Bumped on every committed mutation; a build that raced one is not kept
+    private final Map<UUID, AtomicLong> modifications = new ConcurrentHashMap<>();
+
+    /**
+     * Returns a test for "(material, serial) may be in the user's stock",
+     * building the user's filter from the loader first if it is not in memory.
+     */
+    public BiPredicate<String, String> filterFor(UUID userId, Supplier<List<StockKeyProjection>> loader) {
+        BloomFilter filter;
+        synchronized (filters) {
+            filter = filters.get(userId);
+        }
+        if (filter == null) {
+            long before = modificationCount(userId);
+            List<StockKeyProjection> keys = loader.get();
+            filter = new BloomFilter(Math.max(MIN_CAPACITY, keys.size() * 2));
+            for (StockKeyProjection key : keys) {
+                filter.put(key(key.getMaterialName(), key.getSerialLotNumber()));
+            }
+            if (modificationCount(userId) == before) {
+                synchronized (filters) {
+                    filters.putIfAbsent(userId, filter);
+                }
+            }
+        }
+        BloomFilter current = filter;
+        return (materialName, serialLotNumber) -> current.mightContain(key(materialName, serialLotNumber));
+    }
+
+    /** Adds the rows' keys to the user's filter once the transaction commits. */
+    public void add(UUID userId, List<StockItemResponse> items) {
+        TransactionHooks.afterCommit(() -> {
+            markModified(userId);
+            synchronized (filters) {
+                BloomFilter filter = filters.get(userId);
+                if (filter == null) {
+                    return;
+                }
+                items.forEach(item -> filter.put(key(item.getMaterialName(), item.getSerialLotNumber())));
+                if (filter.isFull()) {
+                    filters.remove(userId);
+                }
+            }
+        });
+    }
+
+    /** Drops the user's filter once the transaction commits; it is rebuilt on the next check. */
+    public void evict(UUID userId) {
+        TransactionHooks.afterCommit(() -> {
+            markModified(userId);
+            synchronized (filters) {
+                filters.remove(userId);
+            }
+        });
+    }
+
+    private void markModified(UUID userId) {
+        modifications.computeIfAbsent(userId, id -> new AtomicLong()).incrementAndGet();
+    }
+
+    private long modificationCount(UUID userId) {
+        AtomicLong count = modifications.get(userId);
+        return count != null ? count.get() : 0L;
+    }
+
+    private static String key(String materialName, String serialLotNumber) {
+        return materialName + "\u0000" + serialLotNumber;
+    }
+
+    /**
+     * Fixed-size Bloom filter sized for a capacity at {@link #FALSE_POSITIVE_RATE}.
+     * Bit positions come from two halves of a 64-bit hash (double hashing).
+     */
+    static class BloomFilter {
+
+        private final BitSet bits;
+        private final int bitCount;
+        private final int hashCount;
+        private final int capacity;
+        private int size;
+
+        BloomFilter(int capacity) {
+            this.capacity = capacity;
+            double ln2 = Math.log(2);
+            this.bitCount = (int) Math.ceil(-capacity * Math.log(FALSE_POSITIVE_RATE) / (ln2 * ln2));
+            this.hashCount = Math.max(1, (int) Math.round((double) bitCount / capacity * ln2));
+            this.bits = new BitSet(bitCount);
+        }
+
+        synchronized void put(String key) {
+            long hash = hash(key);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < hashCount; i++) {
+                bits.set(Math.floorMod(h1 + i * h2, bitCount));
+            }
+            size++;
+        }
+
+        synchronized boolean mightContain(String key) {
+            long hash = hash(key);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < hashCount; i++) {
+                if (!bits.get(Math.floorMod(h1 + i * h2, bitCount))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        synchronized boolean isFull() {
+            return size > capacity;
+        }
+
+        /** 64-bit FNV-1a over the UTF-8 bytes, finished with the MurmurHash3 mixer. */
+        private static long hash(String key) {
+            long hash = 0xcbf29ce484222325L;
+            for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+                hash ^= b & 0xff;
+                hash *= 0x100000001b3L;
+            }
+            hash ^= hash >>> 33;
+            hash *= 0xff51afd7ed558ccdL;
+            hash ^= hash >>> 33;
+            hash *= 0xc4ceb9fe1a85ec53L;
+            hash ^= hash >>> 33;
+            return hash;
+        }
+    }
+}
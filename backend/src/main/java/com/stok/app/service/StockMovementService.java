@@ -0,0 +1,95 @@
+package com.stok.app.service;
+
+import com.stok.app.dto.response.StockBalanceResponse;
+import com.stok.app.entity.StockMovement;
+import com.stok.app.entity.StockMovementType;
+import com.stok.app.repository.StockMovementRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Stock Movement Service - writes the stock ledger and answers point-in-time
+ * balance queries from it. Movements must be written in the transaction that
+ * changes the stock, so recording requires one.
+ */
+@Service
+@Transactional
+@RequiredArgsConstructor
+public class StockMovementService {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(StockMovementService.class);
+
+    private final StockMovementRepository stockMovementRepository;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(UUID userId, StockMovementType type, String materialName, String serialLotNumber,
+            int quantityDelta, UUID referenceId) {
+        if (quantityDelta == 0) {
+            return;
+        }
+        stockMovementRepository.save(movement(userId, type, materialName, serialLotNumber, quantityDelta,
+                referenceId));
+    }
+
+    /**
+     * Records a batch of movements with one batched insert.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordAll(List<StockMovement> movements) {
+        List<StockMovement> nonZero = movements.stream()
+                .filter(m -> m.getQuantityDelta() != 0)
+                .collect(Collectors.toList());
+        if (!nonZero.isEmpty()) {
+            stockMovementRepository.saveAll(nonZero);
+        }
+    }
+
+    /**
+     * Lots the user held at the end of the given day, with their quantities.
+     */
+    @Transactional(readOnly = true)
+    public List<StockBalanceResponse> getBalancesAt(UUID userId, LocalDate date) {
+        if (userId == null) {
+            throw new IllegalArgumentException("userId is required");
+        }
+        if (date == null) {
+            throw new IllegalArgumentException("date is required");
+        }
+        return stockMovementRepository.findBalancesAt(userId, date).stream()
+                .map(row -> StockBalanceResponse.builder()
+                        .materialName(row.getMaterialName())
+                        .serialLotNumber(row.getSerialLotNumber())
+                        .quantity(row.getQuantity())
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Checkpoints every user's balances at the start of today, so balance
+     * queries only replay the movements of the days after it.
+     */
+    public int createDailyCheckpoint() {
+        int rows = stockMovementRepository.createDailyCheckpoint();
+        log.info("Stock balance checkpoint written: {} rows", rows);
+        return rows;
+    }
+
+    public static StockMovement movement(UUID userId, StockMovementType type, String materialName,
+            String serialLotNumber, int quantityDelta, UUID referenceId) {
+        return StockMovement.builder()
+                .userId(userId)
+                .movementType(type)
+                .materialName(materialName)
+                .serialLotNumber(serialLotNumber)
+                .quantityDelta(quantityDelta)
+                .referenceId(referenceId)
+                .build();
+    }
+}
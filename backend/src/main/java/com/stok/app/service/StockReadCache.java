@@ -0,0 +1,152 @@
+package com.stok.app.service;
+
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Versioned read cache for stock listings.
+ *
+ * Every stock mutation bumps a per-user version counter (and a global one used
+ * by "ALL USERS" reads). Read results are cached under an ETag derived from
+ * (view, scope, filters, version), so a poll whose ETag still matches can be
+ * answered with 304 before any stock query runs, and an unchanged read from a
+ * second device is served from memory.
+ *
+ * The cache is bounded by entries and by the total number of stock rows the
+ * cached results hold, since one "ALL USERS" listing is a copy of the whole
+ * stock table.
+ */
+@Component
+public class StockReadCache {
+
+    private static final int MAX_ENTRIES = 500;
+    static final int MAX_WEIGHT = 100_000;
+
+    // Distinguishes ETags issued before a restart, when all counters start over
+    private final long epoch = System.currentTimeMillis();
+
+    private final AtomicLong globalVersion = new AtomicLong();
+    private final Map<UUID, AtomicLong> userVersions = new ConcurrentHashMap<>();
+
+    private record Entry(Object value, int weight) {
+    }
+
+    // Access order, so the least recently read results are evicted first
+    private final Map<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalWeight;
+
+    /**
+     * Marks the user's stock as changed. Inside a transaction the bump is
+     * deferred until commit, so a concurrent read can never cache uncommitted
+     * state under the new version.
+     */
+    public void invalidate(UUID userId) {
+        if (userId == null) {
+            return;
+        }
+        TransactionHooks.afterCommit(() -> bump(userId));
+    }
+
+    /**
+     * Strong ETag for a stock read.
+     *
+     * @param view    name of the listing (e.g. "all", "grouped")
+     * @param userId  owner scope, or null for reads spanning several users
+     * @param filters canonical form of the remaining request filters
+     */
+    public String etag(String view, UUID userId, String filters) {
+        long version = userId != null ? userVersion(userId).get() : globalVersion.get();
+        String key = epoch + "|" + view + "|" + (userId != null ? userId : "*") + "|" + version + "|" + filters;
+        return "\"" + sha256(key) + "\"";
+    }
+
+    /**
+     * True if the If-None-Match header lists the given ETag.
+     */
+    public boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.equals("*") || trimmed.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the cached result for the ETag, loading and caching it on a miss.
+     * A collection weighs as many rows as it has elements.
+     */
+    public <T> T get(String etag, Supplier<T> loader) {
+        return get(etag, loader, StockReadCache::defaultWeight);
+    }
+
+    /**
+     * Same as {@link #get(String, Supplier)}, with the number of stock rows a
+     * result holds given by the weigher. A result weighing more than the whole
+     * cache is returned without being cached.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String etag, Supplier<T> loader, ToIntFunction<T> weigher) {
+        synchronized (entries) {
+            Entry cached = entries.get(etag);
+            if (cached != null) {
+                return (T) cached.value();
+            }
+        }
+        T loaded = loader.get();
+        int weight = Math.max(1, weigher.applyAsInt(loaded));
+        if (weight > MAX_WEIGHT) {
+            return loaded;
+        }
+        synchronized (entries) {
+            Entry previous = entries.put(etag, new Entry(loaded, weight));
+            totalWeight += weight - (previous != null ? previous.weight() : 0);
+            // The new entry is the most recent one and fits on its own
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (entries.size() > MAX_ENTRIES || totalWeight > MAX_WEIGHT) {
+                totalWeight -= eldest.next().weight();
+                eldest.remove();
+            }
+        }
+        return loaded;
+    }
+
+    private static int defaultWeight(Object value) {
+        return value instanceof Collection<?> collection ? collection.size() : 1;
+    }
+
+    private void bump(UUID userId) {
+        userVersion(userId).incrementAndGet();
+        globalVersion.incrementAndGet();
+    }
+
+    private AtomicLong userVersion(UUID userId) {
+        return userVersions.computeIfAbsent(userId, id -> new AtomicLong());
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)), 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.stok.app.service;
+
+import com.stok.app.dto.response.StockItemResponse;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * In-process autocomplete index over each user's material names and serial/lot
+ * numbers, used by /stocks/search.
+ *
+ * A user's index is built on their first search and then kept current by the
+ * StockService mutation paths, which push changed rows in after commit. Lookups
+ * go through a bigram inverted index, so a keystroke costs a few set probes and
+ * no database round trip. The number of indexed users is bounded by an LRU.
+ */
+@Component
+public class StockSearchIndex {
+
+    /** Users whose stock exceeds this are searched in the database instead */
+    public static final int MAX_ITEMS_PER_USER = 20_000;
+
+    private static final int MAX_USERS = 256;
+
+    private final Map<UUID, UserIndex> indexes = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<UUID, UserIndex> eldest) {
+            return size() > MAX_USERS;
+        }
+    };
+
+    // Bumped on every committed mutation; a build that raced one is not kept
+    private final Map<UUID, AtomicLong> modifications = new ConcurrentHashMap<>();
+
+    public boolean isLoaded(UUID userId) {
+        synchronized (indexes) {
+            return indexes.containsKey(userId);
+        }
+    }
+
+    /**
+     * Returns up to limit matches for the query, building the user's index from
+     * the loader first if it is not in memory yet.
+     */
+    public List<StockItemResponse> search(UUID userId, String query, int limit,
+            Supplier<List<StockItemResponse>> loader) {
+        UserIndex index;
+        synchronized (indexes) {
+            index = indexes.get(userId);
+        }
+        if (index == null) {
+            long before = modificationCount(userId);
+            index = new UserIndex();
+            for (StockItemResponse item : loader.get()) {
+                index.put(item);
+            }
+            if (modificationCount(userId) == before) {
+                synchronized (indexes) {
+                    indexes.putIfAbsent(userId, index);
+                }
+            }
+        }
+        return index.search(normalize(query), limit);
+    }
+
+    /** Adds or replaces rows of the user's index once the transaction commits. */
+    public void upsert(UUID userId, List<StockItemResponse> items) {
+        TransactionHooks.afterCommit(() -> {
+            markModified(userId);
+            UserIndex index = loadedIndex(userId);
+            if (index != null) {
+                items.forEach(index::put);
+            }
+        });
+    }
+
+    /** Removes a row from the user's index once the transaction commits. */
+    public void remove(UUID userId, UUID itemId) {
+        TransactionHooks.afterCommit(() -> {
+            markModified(userId);
+            UserIndex index = loadedIndex(userId);
+            if (index != null) {
+                index.remove(itemId);
+            }
+        });
+    }
+
+    /**
+     * Applies new quantities (by row id) to the user's index once the transaction
+     * commits; rows left with zero are removed.
+     */
+    public void updateQuantities(UUID userId, Map<UUID, Integer> quantities) {
+        TransactionHooks.afterCommit(() -> {
+            markModified(userId);
+            UserIndex index = loadedIndex(userId);
+            if (index != null) {
+                quantities.forEach((itemId, quantity) -> {
+                    if (quantity > 0) {
+                        index.setQuantity(itemId, quantity);
+                    } else {
+                        index.remove(itemId);
+                    }
+                });
+            }
+        });
+    }
+
+    /** Drops the user's index once the transaction commits; it is rebuilt on the next search. */
+    public void evict(UUID userId) {
+        TransactionHooks.afterCommit(() -> {
+            markModified(userId);
+            synchronized (indexes) {
+                indexes.remove(userId);
+            }
+        });
+    }
+
+    private UserIndex loadedIndex(UUID userId) {
+        synchronized (indexes) {
+            return indexes.get(userId);
+        }
+    }
+
+    private void markModified(UUID userId) {
+        modifications.computeIfAbsent(userId, id -> new AtomicLong()).incrementAndGet();
+    }
+
+    private long modificationCount(UUID userId) {
+        AtomicLong count = modifications.get(userId);
+        return count != null ? count.get() : 0L;
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Index of a single user's stock rows.
+     */
+    private static class UserIndex {
+
+        private final Map<UUID, Entry> entries = new HashMap<>();
+        private final Map<String, Set<UUID>> postings = new HashMap<>();
+
+        synchronized void put(StockItemResponse item) {
+            remove(item.getId());
+            Entry entry = new Entry(item, normalize(item.getMaterialName()), normalize(item.getSerialLotNumber()));
+            entries.put(item.getId(), entry);
+            for (String gram : grams(entry)) {
+                postings.computeIfAbsent(gram, g -> new HashSet<>()).add(item.getId());
+            }
+        }
+
+        synchronized void remove(UUID itemId) {
+            Entry entry = entries.remove(itemId);
+            if (entry == null) {
+                return;
+            }
+            for (String gram : grams(entry)) {
+                Set<UUID> ids = postings.get(gram);
+                if (ids != null) {
+                    ids.remove(itemId);
+                    if (ids.isEmpty()) {
+                        postings.remove(gram);
+                    }
+                }
+            }
+        }
+
+        synchronized void setQuantity(UUID itemId, int quantity) {
+            Entry entry = entries.get(itemId);
+            if (entry == null) {
+                return;
+            }
+            // Responses handed out by search() are never mutated; swap in a copy
+            StockItemResponse item = entry.item;
+            StockItemResponse updated = new StockItemResponse(item.getId(), item.getMaterialName(),
+                    item.getSerialLotNumber(), item.getUbbCode(), item.getExpiryDate(), quantity,
+                    item.getDateAdded(), item.getFromField(), item.getToField(), item.getMaterialCode(),
+                    item.getOwnerName(), item.getOwnerId(), item.getCreatedAt(), item.getUpdatedAt());
+            entries.put(itemId, new Entry(updated, entry.name, entry.serial));
+        }
+
+        synchronized List<StockItemResponse> search(String query, int limit) {
+            if (query.length() < 2) {
+                return List.of();
+            }
+
+            // Every bigram of the query must occur; start from the rarest one
+            Set<UUID> candidates = null;
+            for (int i = 0; i + 2 <= query.length(); i++) {
+                Set<UUID> ids = postings.get(query.substring(i, i + 2));
+                if (ids == null) {
+                    return List.of();
+                }
+                if (candidates == null || ids.size() < candidates.size()) {
+                    candidates = ids;
+                }
+            }
+
+            List<Entry> matches = new ArrayList<>();
+            for (UUID id : candidates) {
+                Entry entry = entries.get(id);
+                if (entry.serial.contains(query) || entry.name.contains(query)) {
+                    matches.add(entry);
+                }
+            }
+
+            // Same order as the database search: serial prefix matches first,
+            // then the closest (shortest) matching field, then by name
+            Comparator<Entry> ranking = Comparator
+                    .comparing((Entry e) -> !e.serial.startsWith(query))
+                    .thenComparing(e -> -closeness(e, query))
+                    .thenComparing(e -> e.item.getMaterialName())
+                    .thenComparing(e -> e.item.getId());
+            return matches.stream()
+                    .sorted(ranking)
+                    .limit(limit)
+                    .map(e -> e.item)
+                    .toList();
+        }
+
+        private static double closeness(Entry entry, String query) {
+            double serial = entry.serial.contains(query) ? (double) query.length() / entry.serial.length() : 0;
+            double name = entry.name.contains(query) ? (double) query.length() / entry.name.length() : 0;
+            return Math.max(serial, name);
+        }
+
+        private static Set<String> grams(Entry entry) {
+            Set<String> grams = new HashSet<>();
+            addGrams(entry.name, grams);
+            addGrams(entry.serial, grams);
+            return grams;
+        }
+
+        private static void addGrams(String value, Set<String> grams) {
+            for (int i = 0; i + 2 <= value.length(); i++) {
+                grams.add(value.substring(i, i + 2));
+            }
+        }
+    }
+
+    private static class Entry {
+        private final StockItemResponse item;
+        private final String name;
+        private final String serial;
+
+        Entry(StockItemResponse item, String name, String serial) {
+            this.item = item;
+            this.name = name;
+            this.serial = serial;
+        }
+    }
+}
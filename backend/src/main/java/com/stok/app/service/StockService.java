@@ -3,19 +3,25 @@ package com.stok.app.service;
 import com.stok.app.dto.request.StockItemRequest;
 import com.stok.app.dto.request.RemoveStockRequest;
 import com.stok.app.dto.response.StockItemResponse;
+import com.stok.app.dto.response.StockPageResponse;
 import com.stok.app.entity.StockItem;
 import com.stok.app.entity.User;
 import com.stok.app.exception.ResourceNotFoundException;
 import com.stok.app.repository.StockItemRepository;
 import com.stok.app.repository.UserRepository;
+import com.stok.app.repository.projection.MaterialTotalRow;
+import com.stok.app.repository.projection.StockItemRowProjection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -28,43 +34,170 @@ public class StockService {
 
     private static final Logger log = LoggerFactory.getLogger(StockService.class);
 
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final int EXPIRING_SOON_DAYS = 30;
+    private static final int MAX_DUPLICATE_CHECKS = 1000;
+    private static final int DEFAULT_FEFO_LOTS = 3;
+    private static final int MAX_FEFO_LOTS = 20;
+    private static final int MAX_FEFO_MATERIALS = 50;
+    private static final int MAX_BULK_PATCH = 1000;
+
+    static final int TOMBSTONE_RETENTION_DAYS = 30;
+    private static final java.util.regex.Pattern WATERMARK_FORMAT = java.util.regex.Pattern
+            .compile("\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2}(\\.\\d{1,6})?");
+
+    // Sorts before every real (material_name, id) key, used as the first-page cursor
+    private static final UUID FIRST_PAGE_ID = new UUID(0L, 0L);
+
     private final StockItemRepository stockItemRepository;
     private final UserRepository userRepository;
     private final HistoryService historyService;
     private final AuditLogService auditLogService;
-    private final com.fasterxml.jackson.databind.ObjectMapper objectMapper;
     private final NotificationService notificationService;
+    private final StockReadCache stockReadCache;
+    private final StockSearchIndex stockSearchIndex;
+    private final com.stok.app.repository.StockTransferRepository stockTransferRepository;
+    private final BulkDeleter bulkDeleter;
+    private final StockMovementService stockMovementService;
+    private final StockKeyFilter stockKeyFilter;
 
     public StockService(StockItemRepository stockItemRepository,
             UserRepository userRepository,
             HistoryService historyService,
             AuditLogService auditLogService,
-            com.fasterxml.jackson.databind.ObjectMapper objectMapper,
-            NotificationService notificationService) {
+            NotificationService notificationService,
+            StockReadCache stockReadCache,
+            StockSearchIndex stockSearchIndex,
+            com.stok.app.repository.StockTransferRepository stockTransferRepository,
+            BulkDeleter bulkDeleter,
+            StockMovementService stockMovementService,
+            StockKeyFilter stockKeyFilter) {
         this.stockItemRepository = stockItemRepository;
         this.userRepository = userRepository;
         this.historyService = historyService;
         this.auditLogService = auditLogService;
-        this.objectMapper = objectMapper;
         this.notificationService = notificationService;
+        this.stockReadCache = stockReadCache;
+        this.stockSearchIndex = stockSearchIndex;
+        this.stockTransferRepository = stockTransferRepository;
+        this.bulkDeleter = bulkDeleter;
+        this.stockMovementService = stockMovementService;
+        this.stockKeyFilter = stockKeyFilter;
     }
 
+    /**
+     * Full stock listing. Rows come with the owner joined in, so the "ALL
+     * USERS" view costs one query however many owners there are.
+     */
+    @Transactional(readOnly = true)
     public List<StockItemResponse> getAllStock(UUID userId) {
         log.debug("Getting stock for user: {}", userId != null ? userId : "ALL USERS");
-        List<StockItem> items;
-        if (userId != null) {
-            items = stockItemRepository.findByUserId(userId);
-        } else {
-            items = stockItemRepository.findAll();
-        }
-        return items.stream()
+        List<StockItemRowProjection> rows = userId != null
+                ? stockItemRepository.findRowsByUserId(userId)
+                : stockItemRepository.findAllRows();
+        return rows.stream()
                 .map(this::mapToResponse)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Keyset-paginated stock listing ordered by (material name, id).
+     * The cursor is the opaque token returned as nextCursor of the previous
+     * page; every page is a single index range scan regardless of its depth.
+     *
+     * @param userId owner of the stock, or null for all users
+     * @param cursor nextCursor of the previous page, null for the first page
+     * @param size   requested page size, clamped to 1..200
+     */
+    @Transactional(readOnly = true)
+    public StockPageResponse getStockPage(UUID userId, String cursor, Integer size) {
+        int pageSize = size == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        log.debug("Getting stock page for user: {}, size: {}", userId != null ? userId : "ALL USERS", pageSize);
+
+        String afterName = "";
+        UUID afterId = FIRST_PAGE_ID;
+        if (cursor != null && !cursor.isBlank()) {
+            String decoded = decodeCursor(cursor);
+            int separator = decoded.lastIndexOf('|');
+            afterName = decoded.substring(0, separator);
+            afterId = UUID.fromString(decoded.substring(separator + 1));
+        }
+
+        // Fetch one extra row to learn whether another page exists
+        List<StockItemRowProjection> rows = userId != null
+                ? stockItemRepository.findPageByUserIdAfter(userId, afterName, afterId, pageSize + 1)
+                : stockItemRepository.findPageAfter(afterName, afterId, pageSize + 1);
+
+        boolean hasMore = rows.size() > pageSize;
+        List<StockItemRowProjection> pageRows = hasMore ? rows.subList(0, pageSize) : rows;
+
+        String nextCursor = null;
+        if (hasMore) {
+            StockItemRowProjection last = pageRows.get(pageRows.size() - 1);
+            nextCursor = encodeCursor(last.getMaterialName(), last.getId());
+        }
+
+        return StockPageResponse.builder()
+                .items(pageRows.stream().map(this::mapToResponse).collect(Collectors.toList()))
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    /**
+     * Delta sync for the mobile app: the rows written and the ids deleted
+     * since the watermark of the previous sync. Without a watermark, or with
+     * one older than the tombstone retention, every row is returned and the
+     * client replaces its local copy.
+     *
+     * @param userId owner of the stock; required
+     * @param since  watermark returned by the previous sync, or null
+     */
+    @Transactional(readOnly = true)
+    public com.stok.app.dto.response.StockChangesResponse getChanges(UUID userId, String since) {
+        if (userId == null) {
+            throw new IllegalArgumentException("userId is required");
+        }
+        String sinceTimestamp = since == null || since.isBlank() ? null : decodeWatermark(since);
+
+        // Taken before reading and held behind every open transaction, so
+        // anything committed later is in the next sync, however long it ran
+        String watermark = stockItemRepository.currentSyncWatermark();
+
+        boolean fullSync = sinceTimestamp == null
+                || stockItemRepository.isSyncWatermarkExpired(sinceTimestamp, TOMBSTONE_RETENTION_DAYS);
+        List<StockItemRowProjection> changed = fullSync
+                ? stockItemRepository.findRowsByUserId(userId)
+                : stockItemRepository.findRowsChangedSince(userId, sinceTimestamp);
+        List<UUID> deleted = fullSync ? List.of() : stockItemRepository.findDeletedIdsSince(userId, sinceTimestamp);
+
+        log.debug("Stock changes for user {}: {} changed, {} deleted (fullSync={})",
+                userId, changed.size(), deleted.size(), fullSync);
+        return com.stok.app.dto.response.StockChangesResponse.builder()
+                .changed(changed.stream().map(this::mapToResponse).collect(Collectors.toList()))
+                .deleted(deleted)
+                .watermark(Base64.getUrlEncoder().withoutPadding()
+                        .encodeToString(watermark.getBytes(StandardCharsets.UTF_8)))
+                .fullSync(fullSync)
+                .build();
+    }
+
+    /**
+     * Drops tombstones older than the retention; clients that last synced
+     * before that get a full sync.
+     */
+    public int purgeTombstones() {
+        int purged = stockItemRepository.purgeTombstones(TOMBSTONE_RETENTION_DAYS);
+        log.info("Purged {} stock tombstones", purged);
+        return purged;
+    }
+
     /**
      * Search stock items by serial/lot number or material name.
-     * Returns up to 10 matches for auto-fill suggestions.
+     * Returns up to 10 matches for auto-fill suggestions, answered from the
+     * in-memory StockSearchIndex; only very large inventories are searched in
+     * the database.
      */
     @Transactional(readOnly = true)
     public List<StockItemResponse> searchStock(UUID userId, String query) {
@@ -72,55 +205,67 @@ public class StockService {
         if (query == null || query.trim().length() < 2) {
             return List.of();
         }
-        List<StockItem> items = stockItemRepository.searchByQuery(
-                userId, query.trim(), org.springframework.data.domain.PageRequest.of(0, 10));
-        return items.stream()
-                .map(this::mapToResponse)
-                .collect(Collectors.toList());
+        if (userId == null) {
+            return List.of();
+        }
+        String trimmed = query.trim();
+
+        if (!stockSearchIndex.isLoaded(userId)
+                && stockItemRepository.countByUserId(userId) > StockSearchIndex.MAX_ITEMS_PER_USER) {
+            List<StockItemRowProjection> rows = stockItemRepository.searchByQuery(
+                    userId, com.stok.app.repository.specification.StockSpecification.escapeLike(trimmed), trimmed, 10);
+            return rows.stream()
+                    .map(this::mapToResponse)
+                    .collect(Collectors.toList());
+        }
 
+        return stockSearchIndex.search(userId, trimmed, 10, () -> stockItemRepository.findRowsByUserId(userId)
+                .stream()
+                .map(this::mapToResponse)
+                .collect(Collectors.toList()));
     }
 
+    /**
+     * Prefix -> material stock tree. Totals come from a single GROUP BY over the
+     * stored material_prefix column; item leaves are only loaded when
+     * includeItems is set; otherwise the client expands a material through
+     * {@link #getMaterialItems}.
+     */
+    @Transactional(readOnly = true)
     public List<com.stok.app.dto.response.PrefixGroupResponse> getGroupedStocks(
-            UUID effectiveUserId, String search, String categoryId, List<UUID> userIds) {
+            UUID effectiveUserId, String search, String categoryId, List<UUID> userIds, boolean includeItems) {
 
-        log.debug("Getting grouped stock. effectiveUser: {}, search: {}, category: {}",
-                effectiveUserId, search, categoryId);
+        log.debug("Getting grouped stock. effectiveUser: {}, search: {}, category: {}, includeItems: {}",
+                effectiveUserId, search, categoryId, includeItems);
 
         org.springframework.data.jpa.domain.Specification<StockItem> spec = com.stok.app.repository.specification.StockSpecification
                 .withFilters(
                         search, categoryId, userIds, effectiveUserId);
 
-        List<StockItem> items = stockItemRepository.findAll(spec);
+        List<MaterialTotalRow> totals = stockItemRepository.findMaterialTotals(spec);
 
-        // Group by Material Name
-        java.util.Map<String, List<StockItem>> groupedByMaterial = items.stream()
-                .collect(Collectors.groupingBy(StockItem::getMaterialName));
-
-        List<com.stok.app.dto.response.MaterialGroupResponse> materialGroups = groupedByMaterial.entrySet().stream()
-                .map(entry -> {
-                    String materialName = entry.getKey();
-                    List<StockItem> materialItems = entry.getValue();
-                    long totalQ = materialItems.stream().mapToLong(StockItem::getQuantity).sum();
-
-                    return com.stok.app.dto.response.MaterialGroupResponse.builder()
-                            .fullName(materialName)
-                            .totalQuantity(totalQ)
-                            .items(materialItems.stream().map(this::mapToResponse).collect(Collectors.toList()))
-                            .build();
-                })
-                .collect(Collectors.toList());
+        Map<String, List<StockItemResponse>> itemsByMaterial = new HashMap<>();
+        if (includeItems) {
+            itemsByMaterial = stockItemRepository.findAll(spec).stream()
+                    .map(this::mapToResponse)
+                    .collect(Collectors.groupingBy(StockItemResponse::getMaterialName));
+        }
 
-        // Group by Prefix (first word of the material name)
-        java.util.Map<String, List<com.stok.app.dto.response.MaterialGroupResponse>> groupedByPrefix = materialGroups
-                .stream()
-                .collect(Collectors.groupingBy(mg -> {
-                    String[] parts = mg.getFullName().trim().split("\\s+");
-                    return parts.length > 0 ? parts[0] : mg.getFullName();
-                }));
+        // Group material totals by their prefix
+        Map<String, List<com.stok.app.dto.response.MaterialGroupResponse>> groupedByPrefix = new HashMap<>();
+        for (MaterialTotalRow row : totals) {
+            com.stok.app.dto.response.MaterialGroupResponse materialGroup = com.stok.app.dto.response.MaterialGroupResponse
+                    .builder()
+                    .fullName(row.getMaterialName())
+                    .totalQuantity(row.getTotalQuantity())
+                    .itemCount(row.getItemCount())
+                    .items(includeItems ? itemsByMaterial.getOrDefault(row.getMaterialName(), List.of()) : List.of())
+                    .build();
+            groupedByPrefix.computeIfAbsent(row.getPrefix(), k -> new java.util.ArrayList<>()).add(materialGroup);
+        }
 
-        List<com.stok.app.dto.response.PrefixGroupResponse> prefixGroups = groupedByPrefix.entrySet().stream()
+        return groupedByPrefix.entrySet().stream()
                 .map(entry -> {
-                    String prefix = entry.getKey();
                     List<com.stok.app.dto.response.MaterialGroupResponse> mgList = entry.getValue();
                     long prefixTotalQ = mgList.stream()
                             .mapToLong(com.stok.app.dto.response.MaterialGroupResponse::getTotalQuantity).sum();
@@ -129,15 +274,116 @@ public class StockService {
                     mgList.sort((a, b) -> a.getFullName().compareToIgnoreCase(b.getFullName()));
 
                     return com.stok.app.dto.response.PrefixGroupResponse.builder()
-                            .prefix(prefix)
+                            .prefix(entry.getKey())
                             .totalQuantity(prefixTotalQ)
                             .materials(mgList)
                             .build();
                 })
                 .sorted((a, b) -> a.getPrefix().compareToIgnoreCase(b.getPrefix())) // Sort prefixes alphabetically
                 .collect(Collectors.toList());
+    }
+
+    /**
+     * Item leaves of a single material in the grouped stock tree, filtered the
+     * same way as {@link #getGroupedStocks}.
+     */
+    @Transactional(readOnly = true)
+    public List<StockItemResponse> getMaterialItems(
+            UUID effectiveUserId, String materialName, String search, List<UUID> userIds) {
+        log.debug("Getting items of material: {} for user: {}", materialName, effectiveUserId);
+
+        org.springframework.data.jpa.domain.Specification<StockItem> spec = com.stok.app.repository.specification.StockSpecification
+                .withFilters(search, null, userIds, effectiveUserId)
+                .and(com.stok.app.repository.specification.StockSpecification.hasMaterialName(materialName));
+
+        return stockItemRepository.findAll(spec, org.springframework.data.domain.Sort.by("serialLotNumber", "id"))
+                .stream()
+                .map(this::mapToResponse)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Totals per material prefix from the trigger-maintained stock_summary
+     * table, so the cost depends on the number of prefixes, not items. Only
+     * the expiring-soon counts are read from the items themselves, through
+     * the (user_id, expiry_date) index.
+     */
+    @Transactional(readOnly = true)
+    public com.stok.app.dto.response.StockSummaryResponse getStockSummary(UUID userId) {
+        java.time.LocalDate today = java.time.LocalDate.now();
+        java.time.LocalDate until = today.plusDays(EXPIRING_SOON_DAYS);
+
+        List<com.stok.app.repository.projection.PrefixSummaryRow> counters = userId != null
+                ? stockItemRepository.findSummaryByUserId(userId)
+                : stockItemRepository.findSummaryForAllUsers();
+        Map<String, Long> expiringByPrefix = (userId != null
+                ? stockItemRepository.findExpiringByUserId(userId, today, until)
+                : stockItemRepository.findExpiringForAllUsers(today, until)).stream()
+                .collect(Collectors.toMap(com.stok.app.repository.projection.PrefixSummaryRow::getPrefix,
+                        com.stok.app.repository.projection.PrefixSummaryRow::getItemCount));
+
+        List<com.stok.app.dto.response.StockSummaryResponse.Prefix> prefixes = counters.stream()
+                .map(row -> com.stok.app.dto.response.StockSummaryResponse.Prefix.builder()
+                        .prefix(row.getPrefix())
+                        .itemCount(row.getItemCount())
+                        .unitCount(row.getUnitCount())
+                        .expiringSoonCount(expiringByPrefix.getOrDefault(row.getPrefix(), 0L))
+                        .build())
+                .collect(Collectors.toList());
 
-        return prefixGroups;
+        return com.stok.app.dto.response.StockSummaryResponse.builder()
+                .itemCount(prefixes.stream()
+                        .mapToLong(com.stok.app.dto.response.StockSummaryResponse.Prefix::getItemCount).sum())
+                .unitCount(prefixes.stream()
+                        .mapToLong(com.stok.app.dto.response.StockSummaryResponse.Prefix::getUnitCount).sum())
+                .expiringSoonCount(expiringByPrefix.values().stream().mapToLong(Long::longValue).sum())
+                .expiringSoonDays(EXPIRING_SOON_DAYS)
+                .prefixes(prefixes)
+                .build();
+    }
+
+    /**
+     * First-expiry-first-out suggestions for case entry: for each material, the
+     * in-stock lots that have not expired yet, earliest expiry first. All
+     * materials are answered by one query.
+     *
+     * @param materialNames   materials to suggest lots for; blanks and repeats are ignored
+     * @param lotsPerMaterial lots to return per material (default 3, at most 20)
+     * @return one entry per material in request order, with an empty list if none is in stock
+     */
+    @Transactional(readOnly = true)
+    public List<com.stok.app.dto.response.FefoSuggestionResponse> getFefoSuggestions(List<String> materialNames,
+            Integer lotsPerMaterial, UUID userId) {
+        if (userId == null) {
+            throw new IllegalArgumentException("userId is required for lot suggestions");
+        }
+        List<String> names = materialNames == null ? List.of()
+                : materialNames.stream()
+                        .filter(name -> name != null && !name.isBlank())
+                        .map(String::trim)
+                        .distinct()
+                        .toList();
+        if (names.isEmpty()) {
+            throw new IllegalArgumentException("At least one materialName is required");
+        }
+        if (names.size() > MAX_FEFO_MATERIALS) {
+            throw new IllegalArgumentException("At most " + MAX_FEFO_MATERIALS + " materials can be looked up at once");
+        }
+        int limit = lotsPerMaterial == null ? DEFAULT_FEFO_LOTS : Math.max(1, Math.min(lotsPerMaterial, MAX_FEFO_LOTS));
+
+        Map<String, List<StockItemResponse>> lotsByMaterial = new java.util.LinkedHashMap<>();
+        names.forEach(name -> lotsByMaterial.put(name, new java.util.ArrayList<>()));
+        for (StockItemRowProjection row : stockItemRepository.findFefoLots(userId, names.toArray(String[]::new),
+                java.time.LocalDate.now(), limit)) {
+            lotsByMaterial.get(row.getMaterialName()).add(mapToResponse(row));
+        }
+
+        return lotsByMaterial.entrySet().stream()
+                .map(entry -> com.stok.app.dto.response.FefoSuggestionResponse.builder()
+                        .materialName(entry.getKey())
+                        .lots(entry.getValue())
+                        .build())
+                .toList();
     }
 
     public StockItemResponse addStockItem(StockItemRequest request, UUID userId) {
@@ -146,6 +392,7 @@ public class StockService {
 
     private StockItemResponse addStockItem(StockItemRequest request, UUID userId, boolean allowMerge) {
         log.debug("Adding stock item: {} for user: {}", request.getMaterialName(), userId);
+        stockReadCache.invalidate(userId);
 
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
@@ -164,7 +411,12 @@ public class StockService {
                 // Update other fields if necessary, or trust that same Lot means same
                 // properties
                 StockItem saved = stockItemRepository.save(item);
-                return mapToResponse(saved);
+                stockMovementService.record(userId, com.stok.app.entity.StockMovementType.ADD,
+                        saved.getMaterialName(), saved.getSerialLotNumber(), request.getQuantity(), null);
+                StockItemResponse response = mapToResponse(saved);
+                stockSearchIndex.upsert(userId, List.of(response));
+                stockKeyFilter.add(userId, List.of(response));
+                return response;
             } else {
                 throw new IllegalArgumentException(
                         "Stock item with same material name and serial number already exists: "
@@ -172,19 +424,9 @@ public class StockService {
             }
         }
 
-        StockItem stockItem = new StockItem();
-        stockItem.setMaterialName(request.getMaterialName());
-        stockItem.setSerialLotNumber(request.getSerialLotNumber());
-        stockItem.setUbbCode(request.getUbbCode());
-        stockItem.setExpiryDate(request.getExpiryDate());
-        stockItem.setQuantity(request.getQuantity());
-        stockItem.setDateAdded(request.getDateAdded());
-        stockItem.setFromField(request.getFromField());
-        stockItem.setToField(request.getToField());
-        stockItem.setMaterialCode(request.getMaterialCode());
-        stockItem.setUser(user);
-
-        StockItem saved = stockItemRepository.save(stockItem);
+        StockItem saved = stockItemRepository.save(newStockItem(request, user));
+        stockMovementService.record(userId, com.stok.app.entity.StockMovementType.ADD,
+                saved.getMaterialName(), saved.getSerialLotNumber(), saved.getQuantity(), null);
 
         // Unconditionally log to history for new additions
         Map<String, Object> details = new HashMap<>();
@@ -201,47 +443,56 @@ public class StockService {
                 "Added material: " + saved.getMaterialName());
 
         log.info("Stock item added: {}", saved.getId());
-        return mapToResponse(saved);
+        StockItemResponse response = mapToResponse(saved);
+        stockSearchIndex.upsert(userId, List.of(response));
+        stockKeyFilter.add(userId, List.of(response));
+        return response;
     }
 
     public List<StockItemResponse> addStockItems(List<StockItemRequest> requests, UUID userId) {
         log.info("Bulk adding {} stock items for user: {}", requests.size(), userId);
+        return addStockItems(chunked(requests), userId);
+    }
 
-        List<StockItemResponse> results = requests.stream()
-                .map(req -> {
-                    // Manually construct to avoid triggering history per-item during bulk
-                    StockItem stockItem = new StockItem();
-                    stockItem.setMaterialName(req.getMaterialName());
-                    stockItem.setSerialLotNumber(req.getSerialLotNumber());
-                    stockItem.setUbbCode(req.getUbbCode());
-                    stockItem.setExpiryDate(req.getExpiryDate());
-                    stockItem.setQuantity(req.getQuantity());
-                    stockItem.setDateAdded(req.getDateAdded());
-                    stockItem.setFromField(req.getFromField());
-                    stockItem.setToField(req.getToField());
-                    stockItem.setMaterialCode(req.getMaterialCode());
-
-                    User user = userRepository.findById(userId)
-                            .orElseThrow(() -> new ResourceNotFoundException("User not found"));
-                    stockItem.setUser(user);
-
-                    return mapToResponse(stockItemRepository.save(stockItem));
-                })
-                .collect(Collectors.toList());
+    /**
+     * Bulk add fed one chunk at a time, e.g. from a {@link StockItemStream}.
+     * Each chunk is written and detached before the next one is read, so only
+     * the responses are kept for the whole payload. Still one transaction and
+     * one history record.
+     */
+    public List<StockItemResponse> addStockItems(java.util.Iterator<List<StockItemRequest>> chunks, UUID userId) {
+        stockReadCache.invalidate(userId);
+
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+
+        // Manually construct to avoid triggering history per-item during bulk.
+        // Ids are generated client-side, so the inserts are flushed as JDBC
+        // batches (hibernate.jdbc.batch_size + reWriteBatchedInserts).
+        List<StockItemResponse> results = new java.util.ArrayList<>();
+        while (chunks.hasNext()) {
+            List<StockItem> stockItems = chunks.next().stream()
+                    .map(req -> newStockItem(req, user))
+                    .collect(Collectors.toList());
+            results.addAll(saveChunk(stockItems, userId));
+        }
+        stockSearchIndex.upsert(userId, results);
+        stockKeyFilter.add(userId, results);
 
         // Add ONE single history record for the whole batch
-        int totalQuantity = requests.stream().mapToInt(StockItemRequest::getQuantity).sum();
+        int totalQuantity = results.stream().mapToInt(StockItemResponse::getQuantity).sum();
         Map<String, Object> details = new HashMap<>();
-        details.put("count", requests.size());
+        details.put("count", results.size());
         details.put("totalQuantity", totalQuantity);
         details.put("items", results);
 
         historyService.addHistory(
                 userId,
                 "stock-add",
-                String.format("Toplu stok girişi: %d kalem (%d adet) malzeme eklendi", requests.size(), totalQuantity),
+                String.format("Toplu stok girişi: %d kalem (%d adet) malzeme eklendi", results.size(), totalQuantity),
                 details);
 
+        log.info("Bulk added {} stock items for user: {}", results.size(), userId);
         return results;
     }
 
@@ -251,67 +502,171 @@ public class StockService {
      *
      * @param requests list of stock items to import
      * @param userId   owner of the stock
+     * @param dryRun   if true, only computes the saved/skipped split and writes nothing
      * @return result including saved items and list of skipped duplicates
      */
     public com.stok.app.dto.response.BulkImportResponse bulkImportWithDuplicateCheck(
-            List<StockItemRequest> requests, UUID userId) {
-        log.info("Bulk import with duplicate check: {} items for user: {}", requests.size(), userId);
+            List<StockItemRequest> requests, UUID userId, boolean dryRun) {
+        log.info("Bulk import with duplicate check: {} items for user: {} (dryRun={})",
+                requests.size(), userId, dryRun);
+        return bulkImportWithDuplicateCheck(chunked(requests), userId, dryRun);
+    }
 
+    /**
+     * Bulk import with duplicate detection fed one chunk at a time, e.g. from a
+     * {@link StockItemStream}. Duplicates are looked up per chunk, and each
+     * chunk is written before the next one is read.
+     */
+    public com.stok.app.dto.response.BulkImportResponse bulkImportWithDuplicateCheck(
+            java.util.Iterator<List<StockItemRequest>> chunks, UUID userId, boolean dryRun) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
 
+        if (!dryRun) {
+            stockReadCache.invalidate(userId);
+        }
+
+        Set<String> seenKeys = new java.util.HashSet<>();
         List<StockItemResponse> savedItems = new java.util.ArrayList<>();
         List<String> skippedItems = new java.util.ArrayList<>();
 
-        for (StockItemRequest req : requests) {
-            boolean isDuplicate = stockItemRepository
-                    .findByMaterialNameAndSerialLotNumberAndUserId(
-                            req.getMaterialName(), req.getSerialLotNumber(), userId)
-                    .isPresent();
+        while (chunks.hasNext()) {
+            List<StockItemRequest> chunk = chunks.next();
+
+            // One query per chunk instead of one lookup per row
+            String[] names = chunk.stream().map(StockItemRequest::getMaterialName).toArray(String[]::new);
+            String[] serials = chunk.stream().map(StockItemRequest::getSerialLotNumber).toArray(String[]::new);
+            for (com.stok.app.repository.projection.StockKeyProjection existing : stockItemRepository
+                    .findExistingKeys(userId, names, serials)) {
+                seenKeys.add(duplicateKey(existing.getMaterialName(), existing.getSerialLotNumber()));
+            }
 
-            if (isDuplicate) {
-                skippedItems.add(req.getMaterialName() + " (" + req.getSerialLotNumber() + ")");
-                continue;
+            List<StockItem> newItems = new java.util.ArrayList<>();
+            for (StockItemRequest req : chunk) {
+                // Also skips repeats within the payload itself, like the per-row check did
+                if (!seenKeys.add(duplicateKey(req.getMaterialName(), req.getSerialLotNumber()))) {
+                    skippedItems.add(req.getMaterialName() + " (" + req.getSerialLotNumber() + ")");
+                    continue;
+                }
+                newItems.add(newStockItem(req, user));
             }
 
-            // Save new item without individual history
-            StockItem stockItem = new StockItem();
-            stockItem.setMaterialName(req.getMaterialName());
-            stockItem.setSerialLotNumber(req.getSerialLotNumber());
-            stockItem.setUbbCode(req.getUbbCode());
-            stockItem.setExpiryDate(req.getExpiryDate());
-            stockItem.setQuantity(req.getQuantity());
-            stockItem.setDateAdded(req.getDateAdded());
-            stockItem.setFromField(req.getFromField());
-            stockItem.setToField(req.getToField());
-            stockItem.setMaterialCode(req.getMaterialCode());
-            stockItem.setUser(user);
-            StockItem saved = stockItemRepository.save(stockItem);
-            savedItems.add(mapToResponse(saved));
+            if (dryRun) {
+                // Preview only: report the split without writing anything
+                newItems.stream().map(this::mapToResponse).forEach(savedItems::add);
+            } else {
+                // Save new items without individual history
+                savedItems.addAll(saveChunk(newItems, userId));
+            }
         }
 
+        int savedQuantity = savedItems.stream().mapToInt(StockItemResponse::getQuantity).sum();
+        if (dryRun) {
+            return new com.stok.app.dto.response.BulkImportResponse(
+                    savedItems.size(), savedQuantity, skippedItems.size(), skippedItems, savedItems);
+        }
+
+        stockSearchIndex.upsert(userId, savedItems);
+
+        stockKeyFilter.add(userId, savedItems);
+
         // Add a single history record for the whole batch (only if anything was saved)
         if (!savedItems.isEmpty()) {
-            int totalQuantity = savedItems.stream().mapToInt(StockItemResponse::getQuantity).sum();
             Map<String, Object> details = new HashMap<>();
             details.put("count", savedItems.size());
-            details.put("totalQuantity", totalQuantity);
+            details.put("totalQuantity", savedQuantity);
             historyService.addHistory(
                     userId,
                     "stock-add",
                     String.format("Toplu stok girişi: %d kalem (%d adet) malzeme eklendi%s",
-                            savedItems.size(), totalQuantity,
+                            savedItems.size(), savedQuantity,
                             skippedItems.isEmpty() ? "" : " (" + skippedItems.size() + " mükerrer atlandı)"),
                     details);
         }
 
-        int savedQuantity = savedItems.stream().mapToInt(StockItemResponse::getQuantity).sum();
+        log.info("Bulk import finished for user {}: {} saved, {} skipped",
+                userId, savedItems.size(), skippedItems.size());
         return new com.stok.app.dto.response.BulkImportResponse(
                 savedItems.size(), savedQuantity, skippedItems.size(), skippedItems, savedItems);
     }
 
+    /**
+     * Bulk import for very large loads (e.g. warehouse onboarding). Rows are
+     * streamed to a staging table with COPY and merged with a single INSERT ...
+     * SELECT, so no entity is created per row. Duplicates are skipped the same
+     * way as in {@link #bulkImportWithDuplicateCheck}, but only counted; the
+     * saved rows are not returned and the client reloads its listing.
+     *
+     * @param requests list of stock items to import
+     * @param userId   owner of the stock
+     * @return counts of saved and skipped items
+     */
+    public com.stok.app.dto.response.BulkImportResponse copyImport(List<StockItemRequest> requests, UUID userId) {
+        if (userId == null) {
+            throw new IllegalArgumentException("userId is required for import");
+        }
+        log.info("COPY import: {} items for user: {}", requests.size(), userId);
+
+        if (!userRepository.existsById(userId)) {
+            throw new ResourceNotFoundException("User not found");
+        }
+        stockReadCache.invalidate(userId);
+        stockSearchIndex.evict(userId);
+        stockKeyFilter.evict(userId);
+
+        com.stok.app.repository.projection.StagedImportResult result = stockItemRepository.importViaCopy(userId,
+                requests);
+
+        if (result.getInsertedCount() > 0) {
+            Map<String, Object> details = new HashMap<>();
+            details.put("count", result.getInsertedCount());
+            details.put("totalQuantity", result.getInsertedQuantity());
+            details.put("skipped", result.getSkippedCount());
+            historyService.addHistory(
+                    userId,
+                    "stock-add",
+                    String.format("Toplu stok girişi: %d kalem (%d adet) malzeme eklendi%s",
+                            result.getInsertedCount(), result.getInsertedQuantity(),
+                            result.getSkippedCount() == 0 ? ""
+                                    : " (" + result.getSkippedCount() + " mükerrer atlandı)"),
+                    details);
+        }
+
+        log.info("COPY import finished for user {}: {} saved, {} skipped",
+                userId, result.getInsertedCount(), result.getSkippedCount());
+        return new com.stok.app.dto.response.BulkImportResponse(
+                (int) result.getInsertedCount(), (int) result.getInsertedQuantity(),
+                (int) result.getSkippedCount(), List.of(), List.of());
+    }
+
+    /**
+     * Saves one chunk of a bulk add, records its ledger movements and writes it
+     * out, detaching the entities so they do not pile up until commit.
+     */
+    private List<StockItemResponse> saveChunk(List<StockItem> stockItems, UUID userId) {
+        List<StockItemResponse> saved = stockItemRepository.saveAll(stockItems).stream()
+                .map(this::mapToResponse)
+                .collect(Collectors.toList());
+        recordAdditions(userId, saved);
+        stockItemRepository.flushAndClear();
+        return saved;
+    }
+
+    private static java.util.Iterator<List<StockItemRequest>> chunked(List<StockItemRequest> requests) {
+        List<List<StockItemRequest>> chunks = new java.util.ArrayList<>();
+        for (int from = 0; from < requests.size(); from += StockItemStreamReader.CHUNK_SIZE) {
+            chunks.add(requests.subList(from, Math.min(requests.size(), from + StockItemStreamReader.CHUNK_SIZE)));
+        }
+        return chunks.iterator();
+    }
+
+    private static String duplicateKey(String materialName, String serialLotNumber) {
+        return materialName + "\u0000" + serialLotNumber;
+    }
+
     public StockItemResponse updateStockItem(UUID id, UUID userId, StockItemRequest request) {
         log.debug("Updating stock item: {}", id);
+        stockReadCache.invalidate(userId);
 
         StockItem stockItem = stockItemRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Stock item not found"));
@@ -320,6 +675,16 @@ public class StockService {
             throw new IllegalArgumentException("Unauthorized access to stock item");
         }
 
+        // The request carries absolute values; applying them over a row changed
+        // since the client read it would silently undo that change
+        if (request.getVersion() != null && !request.getVersion().equals(stockItem.getVersion())) {
+            throw new org.springframework.orm.ObjectOptimisticLockingFailureException(StockItem.class, id);
+        }
+
+        String previousName = stockItem.getMaterialName();
+        String previousSerial = stockItem.getSerialLotNumber();
+        int previousQuantity = stockItem.getQuantity();
+
         stockItem.setMaterialName(request.getMaterialName());
         stockItem.setSerialLotNumber(request.getSerialLotNumber());
         stockItem.setUbbCode(request.getUbbCode());
@@ -331,16 +696,84 @@ public class StockService {
         stockItem.setMaterialCode(request.getMaterialCode());
 
         StockItem updated = stockItemRepository.save(stockItem);
+        recordAdjustment(userId, previousName, previousSerial, previousQuantity, updated);
 
         auditLogService.log("UPDATE_STOCK", "StockItem", id.toString(),
                 "Updated quantity/details for: " + updated.getMaterialName());
 
         log.info("Stock item updated: {}", id);
-        return mapToResponse(updated);
+        StockItemResponse response = mapToResponse(updated);
+        stockSearchIndex.upsert(userId, List.of(response));
+        stockKeyFilter.add(userId, List.of(response));
+        return response;
+    }
+
+    /**
+     * Bulk correction of descriptive fields (UBB code, dates, from/to, material
+     * code), e.g. a wrong expiry date across a delivery. One set-based UPDATE
+     * applies every row and checks ownership; if any id is missing or belongs
+     * to someone else, nothing is changed. Names, serials and quantities are
+     * not touched, so the ledger and the duplicate keys are unaffected. One
+     * audit and one history entry cover the whole batch.
+     *
+     * @return the corrected rows, in the order of the patches
+     */
+    public List<StockItemResponse> patchStockItems(List<com.stok.app.dto.request.StockItemPatchRequest> patches,
+            UUID userId) {
+        if (userId == null) {
+            throw new IllegalArgumentException("userId is required for bulk update");
+        }
+        if (patches.isEmpty()) {
+            return List.of();
+        }
+        if (patches.size() > MAX_BULK_PATCH) {
+            throw new IllegalArgumentException("At most " + MAX_BULK_PATCH + " stock items can be updated at once");
+        }
+        Set<UUID> ids = new java.util.LinkedHashSet<>();
+        for (com.stok.app.dto.request.StockItemPatchRequest patch : patches) {
+            if (!ids.add(patch.getId())) {
+                throw new IllegalArgumentException("Stock item " + patch.getId() + " appears more than once");
+            }
+        }
+        log.info("Bulk updating {} stock items for user: {}", patches.size(), userId);
+        stockReadCache.invalidate(userId);
+
+        List<UUID> updated = stockItemRepository.patchStock(userId, patches);
+        if (updated.size() != patches.size()) {
+            // Thrown inside the transaction, so the rows already updated are rolled back
+            throw new IllegalArgumentException(String.format(
+                    "Unauthorized access to stock item: %d of %d not found for this user",
+                    patches.size() - updated.size(), patches.size()));
+        }
+
+        // Read back by id, then returned in the order of the request
+        Map<UUID, StockItemResponse> rowsById = stockItemRepository
+                .findRowsByIds(ids.stream().map(UUID::toString).toArray(String[]::new)).stream()
+                .map(this::mapToResponse)
+                .collect(Collectors.toMap(StockItemResponse::getId, row -> row));
+        List<StockItemResponse> results = ids.stream()
+                .map(rowsById::get)
+                .collect(Collectors.toList());
+        stockSearchIndex.upsert(userId, results);
+
+        auditLogService.log("BULK_UPDATE_STOCK", "StockItem", null,
+                "Bulk corrected " + results.size() + " stock items");
+
+        Map<String, Object> details = new HashMap<>();
+        details.put("count", results.size());
+        details.put("items", results);
+        historyService.addHistory(
+                userId,
+                "stock-update",
+                String.format("Toplu stok düzeltmesi: %d kalem güncellendi", results.size()),
+                details);
+
+        return results;
     }
 
     public void deleteStockItem(UUID id, UUID userId) {
         log.debug("Deleting stock item: {}", id);
+        stockReadCache.invalidate(userId);
 
         StockItem stockItem = stockItemRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Stock item not found"));
@@ -361,6 +794,9 @@ public class StockService {
                 details);
 
         stockItemRepository.delete(stockItem);
+        stockSearchIndex.remove(userId, id);
+        stockMovementService.record(userId, com.stok.app.entity.StockMovementType.DELETE,
+                stockItem.getMaterialName(), stockItem.getSerialLotNumber(), -stockItem.getQuantity(), null);
 
         auditLogService.log("DELETE_STOCK", "StockItem", id.toString(),
                 "Deleted material: " + stockItem.getMaterialName());
@@ -368,47 +804,103 @@ public class StockService {
         log.info("Stock item deleted: {}", id);
     }
 
+    /**
+     * Deducts the requested quantities in one conditional UPDATE, deletes rows
+     * that reach zero and writes the history records in one batch. Either every
+     * line is deducted or, if any is missing or short, none is.
+     */
     public void removeStockItems(List<RemoveStockRequest> requests, UUID userId) {
+        removeStockItems(requests, userId, com.stok.app.entity.StockMovementType.REMOVE, null);
+    }
+
+    /**
+     * Same as {@link #removeStockItems(List, UUID)}, recording the deductions
+     * in the ledger with the given movement type (e.g. CASE_USE) and reference.
+     */
+    public void removeStockItems(List<RemoveStockRequest> requests, UUID userId,
+            com.stok.app.entity.StockMovementType movementType, UUID referenceId) {
         log.debug("Removing stock items for user: {}", userId);
+        if (requests.isEmpty()) {
+            return;
+        }
+        stockReadCache.invalidate(userId);
 
+        // Repeated lines for the same row are deducted together
+        Map<String, RemoveStockRequest> firstByKey = new java.util.LinkedHashMap<>();
+        Map<String, Integer> totalByKey = new HashMap<>();
         for (RemoveStockRequest request : requests) {
-            StockItem stockItem = stockItemRepository
-                    .findByMaterialNameAndSerialLotNumberAndUserId(
-                            request.getMaterialName(),
-                            request.getSerialLotNumber(),
-                            userId)
-                    .orElseThrow(() -> new ResourceNotFoundException(
-                            "Stock item not found: " + request.getMaterialName()));
-
-            if (stockItem.getQuantity() < request.getQuantity()) {
-                throw new IllegalArgumentException(
-                        "Insufficient quantity for: " + request.getMaterialName());
-            }
+            String key = duplicateKey(request.getMaterialName(), request.getSerialLotNumber());
+            firstByKey.putIfAbsent(key, request);
+            totalByKey.merge(key, request.getQuantity(), Integer::sum);
+        }
 
-            stockItem.setQuantity(stockItem.getQuantity() - request.getQuantity());
+        List<String> keys = new java.util.ArrayList<>(firstByKey.keySet());
+        String[] names = new String[keys.size()];
+        String[] serials = new String[keys.size()];
+        int[] quantities = new int[keys.size()];
+        for (int i = 0; i < keys.size(); i++) {
+            RemoveStockRequest request = firstByKey.get(keys.get(i));
+            names[i] = request.getMaterialName();
+            serials[i] = request.getSerialLotNumber();
+            quantities[i] = totalByKey.get(keys.get(i));
+        }
 
-            if (stockItem.getQuantity() == 0) {
-                stockItemRepository.delete(stockItem);
-            } else {
-                stockItemRepository.save(stockItem);
+        List<com.stok.app.repository.projection.StockDeductionRow> deducted = stockItemRepository
+                .deductStock(userId, names, serials, quantities);
+
+        if (deducted.size() < keys.size()) {
+            // Throwing rolls back the deductions that did apply
+            Set<String> applied = deducted.stream()
+                    .map(row -> duplicateKey(row.getMaterialName(), row.getSerialLotNumber()))
+                    .collect(Collectors.toSet());
+            for (String key : keys) {
+                if (!applied.contains(key)) {
+                    RemoveStockRequest request = firstByKey.get(key);
+                    boolean exists = stockItemRepository.findByMaterialNameAndSerialLotNumberAndUserId(
+                            request.getMaterialName(), request.getSerialLotNumber(), userId).isPresent();
+                    if (!exists) {
+                        throw new ResourceNotFoundException("Stock item not found: " + request.getMaterialName());
+                    }
+                    throw new IllegalArgumentException("Insufficient quantity for: " + request.getMaterialName());
+                }
             }
+        }
+
+        Map<UUID, Integer> remaining = new HashMap<>();
+        deducted.forEach(row -> remaining.put(row.getId(), row.getRemainingQuantity()));
+        stockSearchIndex.updateQuantities(userId, remaining);
+
+        List<com.stok.app.entity.StockMovement> movements = new java.util.ArrayList<>();
+        for (int i = 0; i < keys.size(); i++) {
+            movements.add(StockMovementService.movement(userId, movementType, names[i], serials[i],
+                    -quantities[i], referenceId));
+        }
+        stockMovementService.recordAll(movements);
 
-            // Add history record
+        // One history record per request line, as before, written in one batch
+        List<HistoryService.Entry> entries = new java.util.ArrayList<>();
+        for (RemoveStockRequest request : requests) {
             Map<String, Object> details = new HashMap<>();
             details.put("materialName", request.getMaterialName());
             details.put("serialLotNumber", request.getSerialLotNumber());
             details.put("quantity", request.getQuantity());
-            historyService.addHistory(
-                    userId,
-                    "stock-remove",
+            entries.add(new HistoryService.Entry(
                     "Stok çıkışı: " + request.getMaterialName() + " (" + request.getQuantity() + " adet)",
-                    details);
+                    details));
         }
+        historyService.addHistories(userId, "stock-remove", entries);
 
         log.info("Stock items removed for user: {}", userId);
     }
 
-    public void deleteAllStock(UUID userId) {
+    /**
+     * Deletes all of the user's stock with chunked DELETE ... WHERE user_id
+     * statements, each committed on its own (see BulkDeleter).
+     *
+     * @return number of deleted stock items
+     */
+    @Transactional(propagation = org.springframework.transaction.annotation.Propagation.NOT_SUPPORTED)
+    public long deleteAllStock(UUID userId) {
         log.debug("Deleting all stock for user: {}", userId);
 
         // Add history record
@@ -418,85 +910,164 @@ public class StockService {
                 "Tüm stok kayıtları silindi",
                 new HashMap<String, Object>());
 
-        List<StockItem> userStock = stockItemRepository.findByUserId(userId);
-        stockItemRepository.deleteAll(userStock);
-        log.info("All stock items deleted for user: {}", userId);
+        // Each chunk statement also writes the DELETE movements of the rows it
+        // removes, so the ledger commits together with every chunk
+        long deleted = bulkDeleter.deleteInChunks(limit -> stockItemRepository.deleteChunkByUserId(userId, limit));
+
+        // No surrounding transaction here, so both take effect immediately
+        stockReadCache.invalidate(userId);
+        stockSearchIndex.evict(userId);
+        stockKeyFilter.evict(userId);
+        log.info("All stock items deleted for user: {} ({} rows)", userId, deleted);
+        return deleted;
     }
 
     public boolean checkDuplicate(String materialName, String serialLotNumber, UUID userId) {
+        if (userId != null && !stockKeyFilter.filterFor(userId, () -> stockItemRepository.findKeysByUserId(userId))
+                .test(materialName, serialLotNumber)) {
+            return false;
+        }
         return stockItemRepository.findByMaterialNameAndSerialLotNumberAndUserId(
                 materialName, serialLotNumber, userId).isPresent();
     }
 
+    /**
+     * Duplicate check for many (material, serial) pairs at once, e.g. a scanned
+     * batch. Pairs the user's Bloom filter rejects are answered without the
+     * database; the possible hits are confirmed with one set-based query.
+     *
+     * @return one flag per request, in request order
+     */
+    @Transactional(readOnly = true)
+    public List<Boolean> checkDuplicates(List<com.stok.app.dto.request.DuplicateCheckRequest> requests,
+            UUID userId) {
+        if (userId == null) {
+            throw new IllegalArgumentException("userId is required for duplicate check");
+        }
+        if (requests.size() > MAX_DUPLICATE_CHECKS) {
+            throw new IllegalArgumentException("At most " + MAX_DUPLICATE_CHECKS + " pairs can be checked at once");
+        }
+
+        java.util.function.BiPredicate<String, String> mightExist = stockKeyFilter.filterFor(userId,
+                () -> stockItemRepository.findKeysByUserId(userId));
+        List<com.stok.app.dto.request.DuplicateCheckRequest> candidates = requests.stream()
+                .filter(req -> mightExist.test(req.getMaterialName(), req.getSerialLotNumber()))
+                .toList();
+
+        Set<String> existing = new java.util.HashSet<>();
+        if (!candidates.isEmpty()) {
+            String[] names = candidates.stream().map(com.stok.app.dto.request.DuplicateCheckRequest::getMaterialName)
+                    .toArray(String[]::new);
+            String[] serials = candidates.stream()
+                    .map(com.stok.app.dto.request.DuplicateCheckRequest::getSerialLotNumber)
+                    .toArray(String[]::new);
+            for (com.stok.app.repository.projection.StockKeyProjection key : stockItemRepository
+                    .findExistingKeys(userId, names, serials)) {
+                existing.add(duplicateKey(key.getMaterialName(), key.getSerialLotNumber()));
+            }
+        }
+        log.debug("Duplicate check for user {}: {} pairs, {} possible hits, {} duplicates",
+                userId, requests.size(), candidates.size(), existing.size());
+
+        return requests.stream()
+                .map(req -> existing.contains(duplicateKey(req.getMaterialName(), req.getSerialLotNumber())))
+                .toList();
+    }
+
     public void initiateTransfer(UUID senderId, UUID receiverId,
             List<com.stok.app.dto.request.TransferItemRequest> items) {
         log.info("Initiating transfer from {} to {}", senderId, receiverId);
+        stockReadCache.invalidate(senderId);
 
         User sender = userRepository.findById(senderId)
                 .orElseThrow(() -> new ResourceNotFoundException("Sender not found"));
         User receiver = userRepository.findById(receiverId)
                 .orElseThrow(() -> new ResourceNotFoundException("Receiver not found"));
 
-        // Validate items and check stock
+        // Lock every requested row at once, in id order, so concurrent transfers
+        // and cases cannot drain them between the check and the deduction
+        List<UUID> itemIds = items.stream()
+                .map(com.stok.app.dto.request.TransferItemRequest::getStockItemId)
+                .distinct()
+                .collect(Collectors.toList());
+        Map<UUID, StockItem> lockedItems = stockItemRepository.findAllByIdForUpdate(itemIds).stream()
+                .collect(Collectors.toMap(StockItem::getId, item -> item));
+
+        // Validate items and check stock against the locked rows
+        Map<UUID, Integer> requestedByItem = new HashMap<>();
         for (com.stok.app.dto.request.TransferItemRequest itemReq : items) {
-            StockItem stockItem = stockItemRepository.findById(itemReq.getStockItemId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Stock item not found"));
+            StockItem stockItem = lockedItems.get(itemReq.getStockItemId());
+            if (stockItem == null) {
+                throw new ResourceNotFoundException("Stock item not found");
+            }
 
             if (!stockItem.getUser().getId().equals(senderId)) {
                 throw new IllegalArgumentException("Unauthorized transfer");
             }
 
-            if (stockItem.getQuantity() < itemReq.getQuantity()) {
+            int requested = requestedByItem.merge(stockItem.getId(), itemReq.getQuantity(), Integer::sum);
+            if (stockItem.getQuantity() < requested) {
                 throw new IllegalArgumentException("Insufficient quantity for item: " + stockItem.getMaterialName());
             }
         }
 
-        // Process deduction and prepare content
-        List<Map<String, Object>> transferredItems = new java.util.ArrayList<>();
+        // Process deduction and record the transfer lines
+        com.stok.app.entity.StockTransfer transfer = new com.stok.app.entity.StockTransfer();
+        transfer.setSenderId(senderId);
+        transfer.setReceiverId(receiverId);
+        int totalQuantity = 0;
 
         for (com.stok.app.dto.request.TransferItemRequest itemReq : items) {
-            StockItem stockItem = stockItemRepository.findById(itemReq.getStockItemId()).get();
-
-            // Deduct from sender
+            StockItem stockItem = lockedItems.get(itemReq.getStockItemId());
             stockItem.setQuantity(stockItem.getQuantity() - itemReq.getQuantity());
+
+            com.stok.app.entity.StockTransferItem transferItem = new com.stok.app.entity.StockTransferItem();
+            transferItem.setMaterialName(stockItem.getMaterialName());
+            transferItem.setSerialLotNumber(stockItem.getSerialLotNumber());
+            transferItem.setUbbCode(stockItem.getUbbCode());
+            transferItem.setExpiryDate(stockItem.getExpiryDate());
+            transferItem.setQuantity(itemReq.getQuantity());
+            transferItem.setFromField(stockItem.getFromField());
+            transferItem.setToField(stockItem.getToField());
+            transferItem.setMaterialCode(stockItem.getMaterialCode());
+            transferItem.setDateAdded(stockItem.getDateAdded());
+            transfer.addItem(transferItem);
+            totalQuantity += itemReq.getQuantity();
+        }
+
+        // Deduct from sender
+        for (StockItem stockItem : lockedItems.values()) {
             if (stockItem.getQuantity() == 0) {
                 stockItemRepository.delete(stockItem);
+                stockSearchIndex.remove(senderId, stockItem.getId());
             } else {
                 stockItemRepository.save(stockItem);
+                stockSearchIndex.upsert(senderId, List.of(mapToResponse(stockItem)));
             }
-
-            Map<String, Object> itemData = new HashMap<>();
-            itemData.put("materialName", stockItem.getMaterialName());
-            itemData.put("serialLotNumber", stockItem.getSerialLotNumber());
-            itemData.put("ubbCode", stockItem.getUbbCode());
-            itemData.put("expiryDate", stockItem.getExpiryDate());
-            itemData.put("quantity", itemReq.getQuantity());
-            itemData.put("fromField", stockItem.getFromField());
-            itemData.put("toField", stockItem.getToField());
-            itemData.put("materialCode", stockItem.getMaterialCode());
-            itemData.put("dateAdded", stockItem.getDateAdded());
-
-            transferredItems.add(itemData);
         }
 
-        // Create Notification content
-        String contentJson;
-        try {
-            contentJson = objectMapper.writeValueAsString(transferredItems);
-        } catch (com.fasterxml.jackson.core.JsonProcessingException e) {
-            throw new RuntimeException("Error serializing transfer items", e);
-        }
+        com.stok.app.entity.StockTransfer savedTransfer = stockTransferRepository.save(transfer);
+
+        List<com.stok.app.entity.StockMovement> movements = new java.util.ArrayList<>();
+        requestedByItem.forEach((itemId, quantity) -> {
+            StockItem stockItem = lockedItems.get(itemId);
+            movements.add(StockMovementService.movement(senderId, com.stok.app.entity.StockMovementType.TRANSFER_OUT,
+                    stockItem.getMaterialName(), stockItem.getSerialLotNumber(), -quantity, savedTransfer.getId()));
+        });
+        stockMovementService.recordAll(movements);
 
-        // Send Notification
+        // Send Notification; it only references the transfer
         String title = sender.getFullName() + " size stok transfer isteği gönderdi";
         notificationService.createNotification(
                 senderId,
                 receiverId,
                 com.stok.app.entity.NotificationType.TRANSFER_REQUEST,
                 title,
-                contentJson,
-                com.stok.app.entity.NotificationActionStatus.WAITING);
+                String.format("%d kalem (%d adet) malzeme", items.size(), totalQuantity),
+                com.stok.app.entity.NotificationActionStatus.WAITING,
+                savedTransfer.getId());
 
+        List<Map<String, Object>> transferredItems = toHistoryItems(savedTransfer);
         historyService.addHistory(
                 senderId,
                 "stock-remove",
@@ -508,10 +1079,24 @@ public class StockService {
                     }
                 });
 
-        auditLogService.log("TRANSFER_INITIATED", "Transfer", null,
+        auditLogService.log("TRANSFER_INITIATED", "Transfer", savedTransfer.getId().toString(),
                 "Transfer initiated from sender: " + senderId + " to receiver: " + receiverId);
     }
 
+    /**
+     * Transfers still waiting for the receiver's decision, newest first.
+     */
+    @Transactional(readOnly = true)
+    public List<com.stok.app.dto.response.StockTransferResponse> getPendingTransfers(UUID receiverId) {
+        if (receiverId == null) {
+            throw new IllegalArgumentException("userId is required");
+        }
+        return stockTransferRepository.findWithItemsByReceiverIdAndStatus(receiverId,
+                com.stok.app.entity.NotificationActionStatus.WAITING).stream()
+                .map(this::mapToResponse)
+                .collect(Collectors.toList());
+    }
+
     public void processTransfer(UUID notificationId, com.stok.app.entity.NotificationActionStatus action) {
         log.info("Processing transfer notification: {} with action: {}", notificationId, action);
 
@@ -521,28 +1106,32 @@ public class StockService {
             throw new IllegalArgumentException("Invalid notification type for transfer processing");
         }
 
-        if (notification.getActionStatus() != com.stok.app.entity.NotificationActionStatus.WAITING) {
-            throw new IllegalArgumentException("Transfer already processed");
+        if (action != com.stok.app.entity.NotificationActionStatus.APPROVED
+                && action != com.stok.app.entity.NotificationActionStatus.REJECTED) {
+            throw new IllegalArgumentException("Invalid transfer action: " + action);
         }
 
-        List<Map<String, Object>> items;
-        try {
-            items = objectMapper.readValue(notification.getContent(),
-                    new com.fasterxml.jackson.core.type.TypeReference<List<Map<String, Object>>>() {
-                    });
-        } catch (com.fasterxml.jackson.core.JsonProcessingException e) {
-            throw new RuntimeException("Error deserializing transfer items", e);
+        if (notification.getTransferId() == null) {
+            throw new ResourceNotFoundException("Transfer not found");
         }
 
+        // Only the request that moves the transfer out of WAITING may apply it
+        int transitioned = stockTransferRepository.transitionStatus(notification.getTransferId(),
+                com.stok.app.entity.NotificationActionStatus.WAITING, action);
+        if (transitioned == 0) {
+            throw new IllegalArgumentException("Transfer already processed");
+        }
+
+        com.stok.app.entity.StockTransfer transfer = stockTransferRepository.findById(notification.getTransferId())
+                .orElseThrow(() -> new ResourceNotFoundException("Transfer not found"));
+        List<Map<String, Object>> items = toHistoryItems(transfer);
+
         User sender = userRepository.findById(notification.getSenderId()).orElse(null);
         User receiver = userRepository.findById(notification.getReceiverId()).orElseThrow();
 
         if (action == com.stok.app.entity.NotificationActionStatus.APPROVED) {
-            // Add items to receiver
-            for (Map<String, Object> itemData : items) {
-                StockItemRequest req = mapToRequest(itemData);
-                addStockItem(req, receiver.getId(), true); // Allow Merge = TRUE
-            }
+            // Add items to receiver, merging into lots they already hold
+            mergeTransferredItems(receiver.getId(), transfer);
 
             // Update Notification
             notificationService.updateActionStatus(notificationId,
@@ -596,10 +1185,7 @@ public class StockService {
         } else if (action == com.stok.app.entity.NotificationActionStatus.REJECTED) {
             // Return items to sender
             if (sender != null) {
-                for (Map<String, Object> itemData : items) {
-                    StockItemRequest tempReq = mapToRequest(itemData);
-                    addStockItem(tempReq, sender.getId(), true); // Allow Merge = TRUE for return too
-                }
+                mergeTransferredItems(sender.getId(), transfer); // Merge back into the sender's lots
 
                 // Notify Sender
                 notificationService.createNotification(
@@ -636,68 +1222,177 @@ public class StockService {
         }
     }
 
-    private StockItemRequest mapToRequest(Map<String, Object> data) {
-        StockItemRequest req = new StockItemRequest();
-        req.setMaterialName((String) data.get("materialName"));
-        req.setSerialLotNumber((String) data.get("serialLotNumber"));
-        req.setUbbCode((String) data.get("ubbCode"));
-        req.setQuantity(safeCastInteger(data.get("quantity")));
-        req.setFromField((String) data.get("fromField"));
-        req.setToField((String) data.get("toField"));
-        req.setMaterialCode((String) data.get("materialCode"));
+    /**
+     * Adds the transferred lines to the user's stock with a single upsert
+     * statement instead of one lookup/save/history/audit round per line.
+     */
+    private void mergeTransferredItems(UUID userId, com.stok.app.entity.StockTransfer transfer) {
+        stockReadCache.invalidate(userId);
+        List<StockItemRequest> requests = transfer.getItems().stream()
+                .map(this::mapToRequest)
+                .collect(Collectors.toList());
 
-        req.setExpiryDate(parseDate(data.get("expiryDate")));
-        req.setDateAdded(parseDate(data.get("dateAdded")));
+        int affected = stockItemRepository.upsertStock(userId, requests);
+        stockMovementService.recordAll(requests.stream()
+                .map(req -> StockMovementService.movement(userId, com.stok.app.entity.StockMovementType.TRANSFER_IN,
+                        req.getMaterialName(), req.getSerialLotNumber(), req.getQuantity(), transfer.getId()))
+                .collect(Collectors.toList()));
+
+        // Merged quantities are not read back; the index is rebuilt on the next search
+        stockSearchIndex.evict(userId);
+        stockKeyFilter.evict(userId);
+        auditLogService.log("TRANSFER_MERGED", "StockItem", null,
+                "Merged " + requests.size() + " transferred lines into " + affected + " stock rows of user: " + userId);
+    }
 
-        if (req.getDateAdded() == null) {
-            req.setDateAdded(java.time.LocalDate.now());
+    private void recordAdditions(UUID userId, List<StockItemResponse> added) {
+        stockMovementService.recordAll(added.stream()
+                .map(item -> StockMovementService.movement(userId, com.stok.app.entity.StockMovementType.ADD,
+                        item.getMaterialName(), item.getSerialLotNumber(), item.getQuantity(), null))
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * An update may change the quantity or move the row to another lot; the
+     * latter is recorded as leaving the old lot and entering the new one.
+     */
+    private void recordAdjustment(UUID userId, String previousName, String previousSerial, int previousQuantity,
+            StockItem updated) {
+        if (previousName.equals(updated.getMaterialName()) && previousSerial.equals(updated.getSerialLotNumber())) {
+            stockMovementService.record(userId, com.stok.app.entity.StockMovementType.ADJUST,
+                    previousName, previousSerial, updated.getQuantity() - previousQuantity, null);
+            return;
         }
+        stockMovementService.recordAll(List.of(
+                StockMovementService.movement(userId, com.stok.app.entity.StockMovementType.ADJUST,
+                        previousName, previousSerial, -previousQuantity, null),
+                StockMovementService.movement(userId, com.stok.app.entity.StockMovementType.ADJUST,
+                        updated.getMaterialName(), updated.getSerialLotNumber(), updated.getQuantity(), null)));
+    }
 
-        return req;
+    private StockItem newStockItem(StockItemRequest request, User user) {
+        StockItem stockItem = new StockItem();
+        stockItem.setMaterialName(request.getMaterialName());
+        stockItem.setSerialLotNumber(request.getSerialLotNumber());
+        stockItem.setUbbCode(request.getUbbCode());
+        stockItem.setExpiryDate(request.getExpiryDate());
+        stockItem.setQuantity(request.getQuantity());
+        stockItem.setDateAdded(request.getDateAdded());
+        stockItem.setFromField(request.getFromField());
+        stockItem.setToField(request.getToField());
+        stockItem.setMaterialCode(request.getMaterialCode());
+        stockItem.setUser(user);
+        return stockItem;
     }
 
-    private Integer safeCastInteger(Object obj) {
-        if (obj == null)
-            return 0;
-        if (obj instanceof Integer)
-            return (Integer) obj;
-        if (obj instanceof Number)
-            return ((Number) obj).intValue();
-        if (obj instanceof String) {
-            try {
-                return Integer.parseInt((String) obj);
-            } catch (NumberFormatException e) {
-                return 0;
-            }
-        }
-        return 0;
+    private StockItemRequest mapToRequest(com.stok.app.entity.StockTransferItem item) {
+        StockItemRequest req = new StockItemRequest();
+        req.setMaterialName(item.getMaterialName());
+        req.setSerialLotNumber(item.getSerialLotNumber());
+        req.setUbbCode(item.getUbbCode());
+        req.setQuantity(item.getQuantity());
+        req.setFromField(item.getFromField());
+        req.setToField(item.getToField());
+        req.setMaterialCode(item.getMaterialCode());
+        req.setExpiryDate(item.getExpiryDate());
+        req.setDateAdded(item.getDateAdded() != null ? item.getDateAdded() : java.time.LocalDate.now());
+        return req;
     }
 
-    private java.time.LocalDate parseDate(Object dateObj) {
-        if (dateObj == null)
-            return null;
+    private com.stok.app.dto.response.StockTransferResponse mapToResponse(com.stok.app.entity.StockTransfer transfer) {
+        return com.stok.app.dto.response.StockTransferResponse.builder()
+                .id(transfer.getId())
+                .senderId(transfer.getSenderId())
+                .receiverId(transfer.getReceiverId())
+                .status(transfer.getStatus())
+                .createdAt(transfer.getCreatedAt())
+                .processedAt(transfer.getProcessedAt())
+                .items(transfer.getItems().stream()
+                        .map(item -> com.stok.app.dto.response.StockTransferResponse.Item.builder()
+                                .materialName(item.getMaterialName())
+                                .serialLotNumber(item.getSerialLotNumber())
+                                .ubbCode(item.getUbbCode())
+                                .expiryDate(item.getExpiryDate())
+                                .quantity(item.getQuantity())
+                                .dateAdded(item.getDateAdded())
+                                .fromField(item.getFromField())
+                                .toField(item.getToField())
+                                .materialCode(item.getMaterialCode())
+                                .build())
+                        .collect(Collectors.toList()))
+                .build();
+    }
 
-        if (dateObj instanceof String) {
-            return java.time.LocalDate.parse((String) dateObj);
+    // Same shape the transfer history records have always stored
+    private List<Map<String, Object>> toHistoryItems(com.stok.app.entity.StockTransfer transfer) {
+        List<Map<String, Object>> result = new java.util.ArrayList<>();
+        for (com.stok.app.entity.StockTransferItem item : transfer.getItems()) {
+            Map<String, Object> itemData = new HashMap<>();
+            itemData.put("materialName", item.getMaterialName());
+            itemData.put("serialLotNumber", item.getSerialLotNumber());
+            itemData.put("ubbCode", item.getUbbCode());
+            itemData.put("expiryDate", item.getExpiryDate());
+            itemData.put("quantity", item.getQuantity());
+            itemData.put("fromField", item.getFromField());
+            itemData.put("toField", item.getToField());
+            itemData.put("materialCode", item.getMaterialCode());
+            itemData.put("dateAdded", item.getDateAdded());
+            result.add(itemData);
         }
+        return result;
+    }
 
-        if (dateObj instanceof List) {
-            List<?> list = (List<?>) dateObj;
-            if (list.size() >= 3) {
-                return java.time.LocalDate.of(
-                        ((Number) list.get(0)).intValue(),
-                        ((Number) list.get(1)).intValue(),
-                        ((Number) list.get(2)).intValue());
+    private String encodeCursor(String materialName, UUID id) {
+        String raw = materialName + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String decodeCursor(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = decoded.lastIndexOf('|');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid cursor");
             }
+            UUID.fromString(decoded.substring(separator + 1));
+            return decoded;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
         }
+    }
 
+    private String decodeWatermark(String watermark) {
         try {
-            return java.time.LocalDate.parse(dateObj.toString());
-        } catch (Exception e) {
-            return null;
+            String decoded = new String(Base64.getUrlDecoder().decode(watermark), StandardCharsets.UTF_8);
+            if (!WATERMARK_FORMAT.matcher(decoded).matches()) {
+                throw new IllegalArgumentException("Invalid watermark");
+            }
+            return decoded;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid watermark");
         }
     }
 
+    private StockItemResponse mapToResponse(StockItemRowProjection row) {
+        return StockItemResponse.builder()
+                .id(row.getId())
+                .materialName(row.getMaterialName())
+                .serialLotNumber(row.getSerialLotNumber())
+                .ubbCode(row.getUbbCode())
+                .expiryDate(row.getExpiryDate())
+                .quantity(row.getQuantity())
+                .dateAdded(row.getDateAdded())
+                .fromField(row.getFromField())
+                .toField(row.getToField())
+                .materialCode(row.getMaterialCode())
+                .ownerName(row.getOwnerName())
+                .ownerId(row.getOwnerId())
+                .createdAt(row.getCreatedAt())
+                .updatedAt(row.getUpdatedAt())
+                .version(row.getVersion())
+                .build();
+    }
+
     private StockItemResponse mapToResponse(StockItem item) {
         return StockItemResponse.builder()
                 .id(item.getId())
@@ -714,6 +1409,7 @@ public class StockService {
                 .ownerId(item.getUser() != null ? item.getUser().getId() : null)
                 .createdAt(item.getCreatedAt())
                 .updatedAt(item.getUpdatedAt())
+                .version(item.getVersion())
                 .build();
     }
 }
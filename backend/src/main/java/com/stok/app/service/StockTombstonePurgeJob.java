@@ -0,0 +1,28 @@
+package com.stok.app.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Nightly cleanup of the delete tombstones behind the stock change feed and
+ * of the client operation ids recorded by offline sync.
+ */
+@Component
+@ConditionalOnProperty(name = "stock-sync.purge-enabled", havingValue = "true", matchIfMissing = true)
+public class StockTombstonePurgeJob {
+
+    private final StockService stockService;
+    private final SyncMutationService syncMutationService;
+
+    public StockTombstonePurgeJob(StockService stockService, SyncMutationService syncMutationService) {
+        this.stockService = stockService;
+        this.syncMutationService = syncMutationService;
+    }
+
+    @Scheduled(cron = "${stock-sync.purge-cron:0 0 3 * * *}")
+    public void run() {
+        stockService.purgeTombstones();
+        syncMutationService.purgeAppliedOperations();
+    }
+}
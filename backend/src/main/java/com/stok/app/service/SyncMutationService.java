@@ -0,0 +1,154 @@
+package com.stok.app.service;
+
+import com.stok.app.dto.request.SyncMutationRequest;
+import com.stok.app.dto.response.SyncMutationResponse;
+import com.stok.app.repository.SyncOperationRepository;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Applies a batch of operations queued by the mobile app while offline, in
+ * order. Each operation commits in its own transaction together with its
+ * client operation id, so a failing one is rolled back alone and reported
+ * while the others apply, and replaying a batch whose response was lost does
+ * not apply anything twice.
+ */
+@Service
+public class SyncMutationService {
+
+    static final int OPERATION_RETENTION_DAYS = 30;
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(SyncMutationService.class);
+
+    private final StockService stockService;
+    private final CaseService caseService;
+    private final SyncOperationRepository syncOperationRepository;
+    private final Validator validator;
+    private final TransactionTemplate perOperation;
+
+    public SyncMutationService(StockService stockService,
+            CaseService caseService,
+            SyncOperationRepository syncOperationRepository,
+            Validator validator,
+            PlatformTransactionManager transactionManager) {
+        this.stockService = stockService;
+        this.caseService = caseService;
+        this.syncOperationRepository = syncOperationRepository;
+        this.validator = validator;
+        // A savepoint is not enough: a failing @Transactional service call marks
+        // the shared transaction rollback-only and the whole batch would be lost
+        this.perOperation = new TransactionTemplate(transactionManager);
+        this.perOperation.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public SyncMutationResponse apply(UUID userId, List<SyncMutationRequest.Operation> operations) {
+        if (userId == null) {
+            throw new IllegalArgumentException("userId is required");
+        }
+        log.info("Applying {} queued operations for user: {}", operations.size(), userId);
+
+        List<SyncMutationResponse.Result> results = new ArrayList<>(operations.size());
+        for (SyncMutationRequest.Operation operation : operations) {
+            results.add(applyOne(userId, operation));
+        }
+
+        return SyncMutationResponse.builder()
+                .appliedCount(count(results, SyncMutationResponse.Status.APPLIED))
+                .duplicateCount(count(results, SyncMutationResponse.Status.DUPLICATE))
+                .failedCount(count(results, SyncMutationResponse.Status.FAILED))
+                .results(results)
+                .build();
+    }
+
+    /**
+     * Drops applied operation ids past the retention; a client replaying older
+     * operations than that would apply them again.
+     */
+    @Transactional
+    public int purgeAppliedOperations() {
+        int purged = syncOperationRepository.purgeOlderThan(OPERATION_RETENTION_DAYS);
+        log.info("Purged {} applied sync operations", purged);
+        return purged;
+    }
+
+    private SyncMutationResponse.Result applyOne(UUID userId, SyncMutationRequest.Operation operation) {
+        String error = validatePayload(operation);
+        if (error != null) {
+            return result(operation, SyncMutationResponse.Status.FAILED, error);
+        }
+
+        try {
+            SyncMutationResponse.Status status = perOperation.execute(tx -> {
+                if (syncOperationRepository.claim(userId, operation.getClientOperationId()) == 0) {
+                    return SyncMutationResponse.Status.DUPLICATE;
+                }
+                applyOperation(userId, operation);
+                return SyncMutationResponse.Status.APPLIED;
+            });
+            return result(operation, status, null);
+        } catch (RuntimeException e) {
+            // Also covers constraint violations raised when the operation commits
+            log.warn("Queued operation {} failed: {}", operation.getClientOperationId(), e.getMessage());
+            return result(operation, SyncMutationResponse.Status.FAILED, e.getMessage());
+        }
+    }
+
+    private void applyOperation(UUID userId, SyncMutationRequest.Operation operation) {
+        switch (operation.getType()) {
+            case ADD -> stockService.addStockItems(operation.getStockItems(), userId);
+            case REMOVE -> stockService.removeStockItems(operation.getRemoveItems(), userId);
+            case CASE -> caseService.createCase(operation.getCaseRecord(), userId);
+            case TRANSFER -> stockService.initiateTransfer(userId, operation.getTransfer().getReceiverId(),
+                    operation.getTransfer().getItems());
+        }
+    }
+
+    private String validatePayload(SyncMutationRequest.Operation operation) {
+        Object payload = switch (operation.getType()) {
+            case ADD -> operation.getStockItems();
+            case REMOVE -> operation.getRemoveItems();
+            case CASE -> operation.getCaseRecord();
+            case TRANSFER -> operation.getTransfer();
+        };
+        if (payload == null || (payload instanceof List<?> list && list.isEmpty())) {
+            return "Payload is required for operation type " + operation.getType();
+        }
+
+        Set<ConstraintViolation<Object>> violations = new java.util.LinkedHashSet<>();
+        if (payload instanceof List<?> list) {
+            list.forEach(item -> violations.addAll(validator.validate(item)));
+        } else {
+            violations.addAll(validator.validate(payload));
+        }
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                .collect(Collectors.joining(", "));
+    }
+
+    private static SyncMutationResponse.Result result(SyncMutationRequest.Operation operation,
+            SyncMutationResponse.Status status, String error) {
+        return SyncMutationResponse.Result.builder()
+                .clientOperationId(operation.getClientOperationId())
+                .status(status)
+                .error(error)
+                .build();
+    }
+
+    private static int count(List<SyncMutationResponse.Result> results, SyncMutationResponse.Status status) {
+        return (int) results.stream().filter(r -> r.getStatus() == status).count();
+    }
+}
@@ -0,0 +1,11 @@
+-- Migration V10: Trigram indexes for stock substring search
+-- Autocomplete and the stock page filter with LOWER(col) LIKE '%q%', which a
+-- B-tree cannot serve. pg_trgm GIN indexes on the same LOWER() expressions can.
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX IF NOT EXISTS idx_stock_items_material_name_trgm
+ON stock_items USING GIN (LOWER(material_name) gin_trgm_ops);
+
+CREATE INDEX IF NOT EXISTS idx_stock_items_serial_lot_trgm
+ON stock_items USING GIN (LOWER(serial_lot_number) gin_trgm_ops);
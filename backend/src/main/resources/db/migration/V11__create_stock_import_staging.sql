@@ -0,0 +1,21 @@
+-- Migration V11: Staging table for COPY-based stock imports
+-- Large loads are streamed here with COPY and merged into stock_items with a
+-- single INSERT ... SELECT. UNLOGGED skips the WAL; rows only live for the
+-- duration of one import transaction, so nothing is lost on a crash.
+
+CREATE UNLOGGED TABLE IF NOT EXISTS stock_import_staging (
+    batch_id UUID NOT NULL,
+    line_no INTEGER NOT NULL,
+    material_name VARCHAR(255) NOT NULL,
+    serial_lot_number VARCHAR(100) NOT NULL,
+    ubb_code VARCHAR(100),
+    expiry_date DATE,
+    quantity INTEGER NOT NULL,
+    date_added DATE,
+    from_field VARCHAR(255),
+    to_field VARCHAR(255),
+    material_code VARCHAR(100)
+);
+
+CREATE INDEX IF NOT EXISTS idx_stock_import_staging_batch
+ON stock_import_staging(batch_id, line_no);
@@ -0,0 +1,6 @@
+-- Migration V12: Optimistic locking for stock items
+-- Entity updates check and bump this column, so a read-modify-write that
+-- raced another writer fails instead of silently overwriting its quantity.
+
+ALTER TABLE stock_items
+ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
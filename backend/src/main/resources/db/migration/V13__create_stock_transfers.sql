@@ -0,0 +1,81 @@
+-- Migration V13: First-class stock transfers
+-- Transfers used to live as a JSON array in notifications.content. They now
+-- have their own tables; the notification only references the transfer.
+
+CREATE TABLE IF NOT EXISTS stock_transfers (
+    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    sender_id UUID,
+    receiver_id UUID NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'WAITING',
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    processed_at TIMESTAMP,
+    CONSTRAINT fk_transfer_sender FOREIGN KEY (sender_id) REFERENCES users(id) ON DELETE SET NULL,
+    CONSTRAINT fk_transfer_receiver FOREIGN KEY (receiver_id) REFERENCES users(id) ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS stock_transfer_items (
+    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    transfer_id UUID NOT NULL,
+    line_no INTEGER NOT NULL,
+    material_name VARCHAR(255) NOT NULL,
+    serial_lot_number VARCHAR(100) NOT NULL,
+    ubb_code VARCHAR(100),
+    expiry_date DATE,
+    quantity INTEGER NOT NULL,
+    date_added DATE,
+    from_field VARCHAR(255),
+    to_field VARCHAR(255),
+    material_code VARCHAR(100),
+    CONSTRAINT fk_transfer_item_transfer FOREIGN KEY (transfer_id) REFERENCES stock_transfers(id) ON DELETE CASCADE
+);
+
+-- Pending transfers of a receiver
+CREATE INDEX IF NOT EXISTS idx_stock_transfers_receiver_status
+ON stock_transfers(receiver_id, status);
+
+CREATE INDEX IF NOT EXISTS idx_stock_transfer_items_transfer
+ON stock_transfer_items(transfer_id, line_no);
+
+ALTER TABLE notifications
+ADD COLUMN IF NOT EXISTS transfer_id UUID REFERENCES stock_transfers(id) ON DELETE SET NULL;
+
+-- Move existing transfer requests out of their JSON content. The transfer
+-- reuses the notification's id so the two stay easy to correlate.
+INSERT INTO stock_transfers (id, sender_id, receiver_id, status, created_at)
+SELECT n.id, n.sender_id, n.receiver_id, COALESCE(n.action_status, 'WAITING'), n.created_at
+FROM notifications n
+WHERE n.type = 'TRANSFER_REQUEST'
+  AND n.content LIKE '[%'
+ON CONFLICT (id) DO NOTHING;
+
+-- Dates were written either as "yyyy-MM-dd" strings or as [y, m, d] arrays
+INSERT INTO stock_transfer_items (transfer_id, line_no, material_name, serial_lot_number, ubb_code,
+    expiry_date, quantity, date_added, from_field, to_field, material_code)
+SELECT n.id,
+    e.ordinality,
+    COALESCE(e.value->>'materialName', ''),
+    COALESCE(e.value->>'serialLotNumber', ''),
+    e.value->>'ubbCode',
+    CASE jsonb_typeof(e.value->'expiryDate')
+        WHEN 'string' THEN (e.value->>'expiryDate')::date
+        WHEN 'array' THEN make_date((e.value->'expiryDate'->>0)::int, (e.value->'expiryDate'->>1)::int,
+            (e.value->'expiryDate'->>2)::int)
+    END,
+    COALESCE((e.value->>'quantity')::int, 0),
+    CASE jsonb_typeof(e.value->'dateAdded')
+        WHEN 'string' THEN (e.value->>'dateAdded')::date
+        WHEN 'array' THEN make_date((e.value->'dateAdded'->>0)::int, (e.value->'dateAdded'->>1)::int,
+            (e.value->'dateAdded'->>2)::int)
+    END,
+    e.value->>'fromField',
+    e.value->>'toField',
+    e.value->>'materialCode'
+FROM notifications n
+CROSS JOIN LATERAL jsonb_array_elements(n.content::jsonb) WITH ORDINALITY AS e(value, ordinality)
+WHERE n.type = 'TRANSFER_REQUEST'
+  AND n.content LIKE '[%';
+
+UPDATE notifications
+SET transfer_id = id
+WHERE type = 'TRANSFER_REQUEST'
+  AND content LIKE '[%';
@@ -0,0 +1,8 @@
+-- Migration V14: Index the child side of cascading foreign keys
+-- Bulk deletes of cases and products rely on ON DELETE CASCADE; without an
+-- index every deleted parent row costs a sequential scan of the child table.
+-- product_item_custom_fields is already covered by its (product_id, field_id)
+-- primary key.
+
+CREATE INDEX IF NOT EXISTS idx_case_materials_case_id
+ON case_materials(case_id);
@@ -0,0 +1,12 @@
+-- Migration V15: Watermark for expiry alerts
+-- One row per stock item holding the tightest threshold (90/30/7 days) it has
+-- been alerted for. The expiry date is stored too, so correcting an item's
+-- expiry date makes it eligible for alerts again.
+
+CREATE TABLE IF NOT EXISTS stock_expiry_alerts (
+    stock_item_id UUID PRIMARY KEY,
+    threshold_days INTEGER NOT NULL,
+    expiry_date DATE NOT NULL,
+    alerted_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT fk_expiry_alert_stock FOREIGN KEY (stock_item_id) REFERENCES stock_items(id) ON DELETE CASCADE
+);
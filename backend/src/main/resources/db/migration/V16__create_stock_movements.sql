@@ -0,0 +1,55 @@
+-- Migration V16: Append-only stock movement ledger
+-- Every change to stock_items is mirrored here as a signed quantity delta,
+-- written in the same transaction. Balances at a point in time are the
+-- latest checkpoint before it plus the movements since.
+
+CREATE TABLE IF NOT EXISTS stock_movements (
+    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    user_id UUID NOT NULL,
+    movement_type VARCHAR(20) NOT NULL,
+    material_name VARCHAR(255) NOT NULL,
+    serial_lot_number VARCHAR(100) NOT NULL,
+    quantity_delta INTEGER NOT NULL,
+    -- Transfer, case or import batch the movement belongs to
+    reference_id UUID,
+    occurred_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT fk_movement_user FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
+    CONSTRAINT chk_movement_type CHECK (movement_type IN
+        ('OPENING', 'ADD', 'REMOVE', 'CASE_USE', 'TRANSFER_OUT', 'TRANSFER_IN', 'ADJUST', 'DELETE'))
+);
+
+CREATE INDEX IF NOT EXISTS idx_stock_movements_user_occurred
+ON stock_movements(user_id, occurred_at);
+
+CREATE INDEX IF NOT EXISTS idx_stock_movements_serial
+ON stock_movements(serial_lot_number);
+
+-- Movements are never edited; corrections are new movements
+CREATE OR REPLACE FUNCTION stock_movements_append_only() RETURNS trigger AS $$
+BEGIN
+    RAISE EXCEPTION 'stock_movements is append-only';
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_stock_movements_append_only ON stock_movements;
+CREATE TRIGGER trg_stock_movements_append_only
+BEFORE UPDATE ON stock_movements
+FOR EACH ROW EXECUTE FUNCTION stock_movements_append_only();
+
+-- Balance per lot of a user as of checkpoint_at (movements before it);
+-- lots with a zero balance are left out
+CREATE TABLE IF NOT EXISTS stock_balance_checkpoints (
+    user_id UUID NOT NULL,
+    checkpoint_at TIMESTAMP NOT NULL,
+    material_name VARCHAR(255) NOT NULL,
+    serial_lot_number VARCHAR(100) NOT NULL,
+    quantity INTEGER NOT NULL,
+    PRIMARY KEY (user_id, checkpoint_at, material_name, serial_lot_number),
+    CONSTRAINT fk_checkpoint_user FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+);
+
+-- The ledger starts with the stock held at migration time
+INSERT INTO stock_movements (user_id, movement_type, material_name, serial_lot_number, quantity_delta)
+SELECT user_id, 'OPENING', material_name, serial_lot_number, quantity
+FROM stock_items
+WHERE quantity <> 0;
@@ -0,0 +1,93 @@
+-- Migration V17: Per-user stock summary by material prefix
+-- Item and unit counts per (user, prefix) are kept current by statement-level
+-- triggers on stock_items, so they follow every write path (JPA, the
+-- set-based deduct/upsert/import statements and the chunked deletes) in the
+-- same transaction. Each statement applies one aggregated delta per prefix.
+--
+-- No foreign key to users: when a user is deleted, the cascaded stock delete
+-- still runs the trigger, which takes the counts down to zero and removes the
+-- rows.
+
+CREATE TABLE IF NOT EXISTS stock_summary (
+    user_id UUID NOT NULL,
+    prefix VARCHAR(255) NOT NULL,
+    item_count BIGINT NOT NULL DEFAULT 0,
+    unit_count BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (user_id, prefix)
+);
+
+CREATE OR REPLACE FUNCTION stock_summary_apply() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO stock_summary AS s (user_id, prefix, item_count, unit_count)
+        SELECT user_id, material_prefix, COUNT(*), SUM(quantity)
+        FROM new_rows
+        GROUP BY user_id, material_prefix
+        ORDER BY user_id, material_prefix
+        ON CONFLICT (user_id, prefix) DO UPDATE
+        SET item_count = s.item_count + EXCLUDED.item_count,
+            unit_count = s.unit_count + EXCLUDED.unit_count;
+        RETURN NULL;
+    END IF;
+
+    IF TG_OP = 'DELETE' THEN
+        INSERT INTO stock_summary AS s (user_id, prefix, item_count, unit_count)
+        SELECT user_id, material_prefix, -COUNT(*), -SUM(quantity)
+        FROM old_rows
+        GROUP BY user_id, material_prefix
+        ORDER BY user_id, material_prefix
+        ON CONFLICT (user_id, prefix) DO UPDATE
+        SET item_count = s.item_count + EXCLUDED.item_count,
+            unit_count = s.unit_count + EXCLUDED.unit_count;
+    ELSE
+        INSERT INTO stock_summary AS s (user_id, prefix, item_count, unit_count)
+        SELECT user_id, material_prefix, SUM(items), SUM(units)
+        FROM (
+            SELECT user_id, material_prefix, 1 AS items, quantity::bigint AS units FROM new_rows
+            UNION ALL
+            SELECT user_id, material_prefix, -1, -quantity::bigint FROM old_rows
+        ) d
+        GROUP BY user_id, material_prefix
+        HAVING SUM(items) <> 0 OR SUM(units) <> 0
+        ORDER BY user_id, material_prefix
+        ON CONFLICT (user_id, prefix) DO UPDATE
+        SET item_count = s.item_count + EXCLUDED.item_count,
+            unit_count = s.unit_count + EXCLUDED.unit_count;
+    END IF;
+
+    DELETE FROM stock_summary s
+    USING (SELECT DISTINCT user_id, material_prefix FROM old_rows) o
+    WHERE s.user_id = o.user_id AND s.prefix = o.material_prefix AND s.item_count = 0;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Transition tables allow a single event per trigger
+DROP TRIGGER IF EXISTS trg_stock_summary_insert ON stock_items;
+CREATE TRIGGER trg_stock_summary_insert
+AFTER INSERT ON stock_items
+REFERENCING NEW TABLE AS new_rows
+FOR EACH STATEMENT EXECUTE FUNCTION stock_summary_apply();
+
+DROP TRIGGER IF EXISTS trg_stock_summary_update ON stock_items;
+CREATE TRIGGER trg_stock_summary_update
+AFTER UPDATE ON stock_items
+REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+FOR EACH STATEMENT EXECUTE FUNCTION stock_summary_apply();
+
+DROP TRIGGER IF EXISTS trg_stock_summary_delete ON stock_items;
+CREATE TRIGGER trg_stock_summary_delete
+AFTER DELETE ON stock_items
+REFERENCING OLD TABLE AS old_rows
+FOR EACH STATEMENT EXECUTE FUNCTION stock_summary_apply();
+
+INSERT INTO stock_summary (user_id, prefix, item_count, unit_count)
+SELECT user_id, material_prefix, COUNT(*), SUM(quantity)
+FROM stock_items
+GROUP BY user_id, material_prefix
+ON CONFLICT (user_id, prefix) DO NOTHING;
+
+-- "Expiring soon" depends on the current date, so it is counted at read time
+-- from the user's items in the window rather than stored
+CREATE INDEX IF NOT EXISTS idx_stock_items_user_expiry
+ON stock_items(user_id, expiry_date);
@@ -0,0 +1,49 @@
+-- Migration V18: Change feed for the mobile delta sync
+-- GET /stocks/changes returns the rows whose updated_at is past the client's
+-- watermark, plus the ids deleted since then from stock_tombstones.
+
+-- JPA writes stamp updated_at from the application clock and the set-based
+-- statements from the database clock; the feed compares against the
+-- database clock only, so every write is stamped here
+CREATE OR REPLACE FUNCTION stock_items_touch() RETURNS trigger AS $$
+BEGIN
+    NEW.updated_at := LOCALTIMESTAMP;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_stock_items_touch ON stock_items;
+CREATE TRIGGER trg_stock_items_touch
+BEFORE INSERT OR UPDATE ON stock_items
+FOR EACH ROW EXECUTE FUNCTION stock_items_touch();
+
+CREATE INDEX IF NOT EXISTS idx_stock_items_user_updated
+ON stock_items(user_id, updated_at);
+
+-- Deleted stock rows, kept for a retention period (see StockService)
+CREATE TABLE IF NOT EXISTS stock_tombstones (
+    id UUID PRIMARY KEY,
+    user_id UUID NOT NULL,
+    deleted_at TIMESTAMP NOT NULL DEFAULT LOCALTIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_stock_tombstones_user_deleted
+ON stock_tombstones(user_id, deleted_at);
+
+CREATE INDEX IF NOT EXISTS idx_stock_tombstones_deleted
+ON stock_tombstones(deleted_at);
+
+CREATE OR REPLACE FUNCTION stock_items_tombstone() RETURNS trigger AS $$
+BEGIN
+    INSERT INTO stock_tombstones (id, user_id, deleted_at)
+    SELECT id, user_id, LOCALTIMESTAMP FROM old_rows
+    ON CONFLICT (id) DO UPDATE SET deleted_at = EXCLUDED.deleted_at;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_stock_items_tombstone ON stock_items;
+CREATE TRIGGER trg_stock_items_tombstone
+AFTER DELETE ON stock_items
+REFERENCING OLD TABLE AS old_rows
+FOR EACH STATEMENT EXECUTE FUNCTION stock_items_tombstone();
@@ -0,0 +1,16 @@
+-- Migration V19: Applied client operations of the offline mutation queue
+-- POST /sync/mutations records each applied operation id together with its
+-- effect, so a batch replayed after a lost response is not applied twice.
+
+CREATE TABLE IF NOT EXISTS sync_operations (
+    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    user_id UUID NOT NULL,
+    client_operation_id VARCHAR(100) NOT NULL,
+    applied_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT fk_sync_operation_user FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
+    CONSTRAINT uq_sync_operation UNIQUE (user_id, client_operation_id)
+);
+
+-- Retention purge
+CREATE INDEX IF NOT EXISTS idx_sync_operations_applied
+ON sync_operations(applied_at);
@@ -0,0 +1,20 @@
+-- Migration V20: Idempotency keys for retried writes
+-- A client retrying POST /stocks/bulk-import, /stocks/transfer or /cases with
+-- the same Idempotency-Key gets the stored response instead of a second write.
+-- The key is written in the same transaction as the write it guards.
+
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    user_id UUID NOT NULL,
+    idempotency_key VARCHAR(100) NOT NULL,
+    request_hash VARCHAR(64) NOT NULL,
+    status_code INTEGER,
+    response_body TEXT,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT fk_idempotency_key_user FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
+    CONSTRAINT uq_idempotency_key UNIQUE (user_id, idempotency_key)
+);
+
+-- TTL purge
+CREATE INDEX IF NOT EXISTS idx_idempotency_keys_created
+ON idempotency_keys(created_at);
@@ -0,0 +1,8 @@
+-- Migration V21: First-expiry-first-out lot suggestions
+-- GET /stocks/fefo reads, per requested material, the first few in-stock lots
+-- by expiry date. The partial index holds only lots with quantity left, in
+-- exactly that order, so each material costs one short index range scan.
+
+CREATE INDEX IF NOT EXISTS idx_stock_items_fefo
+ON stock_items(user_id, material_name, expiry_date, id)
+WHERE quantity > 0;
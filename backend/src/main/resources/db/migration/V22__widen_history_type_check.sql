@@ -0,0 +1,22 @@
+-- Migration V22: History types written by the services
+-- chk_history_type from V1 only knew the original five types, so inserting
+-- any later one (stock-update from bulk PATCH, case-delete, product-*) failed
+-- and rolled back the change it recorded. The list below is every type passed
+-- to HistoryService.addHistory / addHistories.
+
+ALTER TABLE history DROP CONSTRAINT IF EXISTS chk_history_type;
+
+ALTER TABLE history ADD CONSTRAINT chk_history_type CHECK (type IN (
+    'stock-add',
+    'stock-remove',
+    'stock-update',
+    'stock-delete',
+    'case',
+    'case-delete',
+    'checklist',
+    'product-add',
+    'product-update',
+    'product-delete',
+    'product-bulk-add',
+    'product-bulk-import'
+));
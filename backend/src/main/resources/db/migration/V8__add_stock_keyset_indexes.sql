@@ -0,0 +1,15 @@
+-- Migration V8: Keyset pagination indexes for stock listing
+-- GET /stocks/page walks stock_items ordered by (material_name, id) and resumes
+-- from the last row of the previous page, so page N costs the same as page 1.
+
+-- 1. "ALL USERS" listing for privileged roles
+CREATE INDEX IF NOT EXISTS idx_stock_items_material_name_id
+ON stock_items(material_name, id);
+
+-- 2. Per-user listing
+CREATE INDEX IF NOT EXISTS idx_stock_items_user_material_id
+ON stock_items(user_id, material_name, id);
+
+-- 3. Both older indexes are left-prefixes of the ones above
+DROP INDEX IF EXISTS idx_stock_items_material_name;
+DROP INDEX IF EXISTS idx_stock_items_user_material_comp;
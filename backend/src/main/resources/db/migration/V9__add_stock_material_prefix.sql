@@ -0,0 +1,15 @@
+-- Migration V9: Stored material prefix for grouped stock totals
+-- The stock page groups materials by the first word of their name. Keeping that
+-- word in a generated column lets PostgreSQL do the GROUP BY instead of Java.
+
+ALTER TABLE stock_items
+ADD COLUMN IF NOT EXISTS material_prefix VARCHAR(255)
+GENERATED ALWAYS AS (COALESCE(SUBSTRING(BTRIM(material_name) FROM '^\S+'), '')) STORED;
+
+-- Prefix/material totals for a single user (the common case)
+CREATE INDEX IF NOT EXISTS idx_stock_items_user_prefix_material
+ON stock_items(user_id, material_prefix, material_name);
+
+-- Prefix/material totals across all users (privileged roles)
+CREATE INDEX IF NOT EXISTS idx_stock_items_prefix_material
+ON stock_items(material_prefix, material_name);
@@ -0,0 +1,44 @@
+package com.stok.app.dto.request;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A bulk PATCH row tells a field sent as null (clear it) from a field left out
+ * (keep it).
+ */
+public class StockItemPatchRequestTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Test
+    void explicitNull_IsPresent_MissingField_IsNot() throws Exception {
+        StockItemPatchRequest patch = objectMapper.readValue("""
+                {"id": "6b1f2a4e-0c55-4c52-9a53-2f0d1f7c9e10",
+                 "ubbCode": null, "expiryDate": "2027-06-30", "materialCode": null}
+                """, StockItemPatchRequest.class);
+
+        assertTrue(patch.hasUbbCode());
+        assertNull(patch.getUbbCode());
+        assertTrue(patch.hasMaterialCode());
+        assertNull(patch.getMaterialCode());
+        assertTrue(patch.hasExpiryDate());
+        assertEquals(LocalDate.of(2027, 6, 30), patch.getExpiryDate());
+        assertFalse(patch.hasFromField());
+        assertFalse(patch.hasToField());
+    }
+
+    @Test
+    void presenceFlags_AreNotJsonProperties() throws Exception {
+        String json = objectMapper.writeValueAsString(new StockItemPatchRequest());
+
+        assertFalse(json.contains("Present"), json);
+    }
+}
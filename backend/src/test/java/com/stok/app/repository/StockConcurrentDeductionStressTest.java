@@ -0,0 +1,153 @@
+package com.stok.app.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Many threads deducting from the same lot at once through the conditional
+ * UPDATE used by removeStockItems; it must never oversell. The @Version path
+ * is covered by StockOptimisticLockTest.
+ *
+ * Needs a PostgreSQL database and is skipped otherwise. The table is created in
+ * a throwaway schema, so the application schema is neither required nor touched:
+ *
+ * mvn test -Dtest=StockConcurrentDeductionStressTest
+ * -Dstress.jdbc.url=jdbc:postgresql://localhost:5432/stok_yonetim
+ * -Dstress.jdbc.user=postgres -Dstress.jdbc.password=...
+ */
+@EnabledIfSystemProperty(named = "stress.jdbc.url", matches = ".+")
+public class StockConcurrentDeductionStressTest {
+
+    private static final int THREADS = 16;
+    private static final int DEDUCTIONS_PER_THREAD = 25;
+
+    private final UUID userId = UUID.randomUUID();
+    private final UUID itemId = UUID.randomUUID();
+
+    // TEMP tables are per connection, so the shared table lives in its own schema
+    private final String schema = "stress_" + Long.toHexString(System.nanoTime());
+
+    @BeforeEach
+    void createTable() throws SQLException {
+        try (Connection connection = connect(); Statement ddl = connection.createStatement()) {
+            ddl.execute("CREATE SCHEMA " + schema);
+            ddl.execute("CREATE TABLE " + schema + ".stock_items ("
+                    + "id UUID PRIMARY KEY, material_name VARCHAR(255) NOT NULL, "
+                    + "serial_lot_number VARCHAR(100) NOT NULL, quantity INTEGER NOT NULL, "
+                    + "user_id UUID NOT NULL, version BIGINT NOT NULL DEFAULT 0, "
+                    + "updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP)");
+        }
+    }
+
+    @Test
+    void conditionalUpdateNeverOversells() throws Exception {
+        int initial = THREADS * DEDUCTIONS_PER_THREAD / 2;
+        insertLot(initial);
+
+        List<Integer> successes = runConcurrently(connection -> {
+            int succeeded = 0;
+            try (PreparedStatement update = connection.prepareStatement(StockItemRepositoryImpl.DEDUCT_SQL)) {
+                for (int i = 0; i < DEDUCTIONS_PER_THREAD; i++) {
+                    update.setArray(1, connection.createArrayOf("text", new String[] { "Stress Material" }));
+                    update.setArray(2, connection.createArrayOf("text", new String[] { "LOT-1" }));
+                    update.setArray(3, connection.createArrayOf("int4", new Integer[] { 1 }));
+                    update.setObject(4, userId);
+                    try (ResultSet rs = update.executeQuery()) {
+                        if (rs.next()) {
+                            assertTrue(rs.getInt(4) >= 0);
+                            succeeded++;
+                        }
+                    }
+                }
+            }
+            return succeeded;
+        });
+
+        assertEquals(initial, successes.stream().mapToInt(Integer::intValue).sum());
+        assertEquals(0, currentQuantity());
+    }
+
+    private interface Worker {
+        int run(Connection connection) throws Exception;
+    }
+
+    private List<Integer> runConcurrently(Worker worker) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                Callable<Integer> task = () -> {
+                    try (Connection connection = connect()) {
+                        start.await();
+                        return worker.run(connection);
+                    }
+                };
+                futures.add(pool.submit(task));
+            }
+            start.countDown();
+
+            List<Integer> results = new ArrayList<>();
+            for (Future<Integer> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+            try (Connection connection = connect(); Statement ddl = connection.createStatement()) {
+                ddl.execute("DROP SCHEMA " + schema + " CASCADE");
+            }
+        }
+    }
+
+    private void insertLot(int quantity) throws SQLException {
+        try (Connection connection = connect(); PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO stock_items (id, material_name, serial_lot_number, quantity, user_id) "
+                        + "VALUES (?, 'Stress Material', 'LOT-1', ?, ?)")) {
+            insert.setObject(1, itemId);
+            insert.setInt(2, quantity);
+            insert.setObject(3, userId);
+            insert.executeUpdate();
+        }
+    }
+
+    private int currentQuantity() throws SQLException {
+        try (Connection connection = connect(); PreparedStatement read = connection.prepareStatement(
+                "SELECT quantity FROM stock_items WHERE id = ?")) {
+            read.setObject(1, itemId);
+            try (ResultSet rs = read.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    private Connection connect() throws SQLException {
+        Connection connection = DriverManager.getConnection(System.getProperty("stress.jdbc.url"),
+                System.getProperty("stress.jdbc.user", "postgres"),
+                System.getProperty("stress.jdbc.password", ""));
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SET search_path TO " + schema);
+        }
+        return connection;
+    }
+}
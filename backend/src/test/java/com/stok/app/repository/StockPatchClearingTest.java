@@ -0,0 +1,109 @@
+package com.stok.app.repository;
+
+import com.stok.app.dto.request.StockItemPatchRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * PATCH_SQL against a real PostgreSQL: a field sent as null clears the column,
+ * a field left out of the patch keeps it, and the NOT NULL date_added is never
+ * cleared.
+ *
+ * Needs a PostgreSQL database and is skipped otherwise. The table is created
+ * in a throwaway schema:
+ *
+ * mvn test -Dtest=StockPatchClearingTest
+ * -Dstress.jdbc.url=jdbc:postgresql://localhost:5432/stok_yonetim
+ * -Dstress.jdbc.user=postgres -Dstress.jdbc.password=...
+ */
+@EnabledIfSystemProperty(named = "stress.jdbc.url", matches = ".+")
+public class StockPatchClearingTest {
+
+    private static final LocalDate EXPIRY = LocalDate.of(2027, 6, 30);
+    private static final LocalDate ADDED = LocalDate.of(2025, 1, 15);
+
+    private final UUID userId = UUID.randomUUID();
+    private final UUID itemId = UUID.randomUUID();
+    private final String schema = "patch_" + Long.toHexString(System.nanoTime());
+
+    @BeforeEach
+    void createItem() throws SQLException {
+        try (Connection connection = connect(); Statement ddl = connection.createStatement()) {
+            ddl.execute("CREATE SCHEMA " + schema);
+            ddl.execute("CREATE TABLE " + schema + ".stock_items (id UUID PRIMARY KEY, user_id UUID NOT NULL, "
+                    + "ubb_code VARCHAR(100), expiry_date DATE, date_added DATE NOT NULL, "
+                    + "from_field VARCHAR(255), to_field VARCHAR(255), material_code VARCHAR(100), "
+                    + "version BIGINT NOT NULL DEFAULT 0, updated_at TIMESTAMP)");
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO stock_items "
+                    + "(id, user_id, ubb_code, expiry_date, date_added, from_field, to_field, material_code) "
+                    + "VALUES (?, ?, 'UBB-1', ?, ?, 'Depo', 'Ameliyathane', 'MAT-1')")) {
+                insert.setObject(1, itemId);
+                insert.setObject(2, userId);
+                insert.setObject(3, EXPIRY);
+                insert.setObject(4, ADDED);
+                insert.executeUpdate();
+            }
+        }
+    }
+
+    @AfterEach
+    void dropSchema() throws SQLException {
+        try (Connection connection = connect(); Statement ddl = connection.createStatement()) {
+            ddl.execute("DROP SCHEMA " + schema + " CASCADE");
+        }
+    }
+
+    @Test
+    void explicitNulls_ClearTheColumns_MissingFields_KeepThem() throws SQLException {
+        StockItemPatchRequest patch = new StockItemPatchRequest();
+        patch.setId(itemId);
+        patch.setUbbCode(null);
+        patch.setExpiryDate(null);
+        patch.setToField("Yoğun Bakım");
+        patch.setDateAdded(null);
+
+        try (Connection connection = connect()) {
+            assertEquals(List.of(itemId), StockItemRepositoryImpl.patchStock(connection, userId, List.of(patch)));
+
+            try (PreparedStatement read = connection.prepareStatement("SELECT ubb_code, expiry_date, date_added, "
+                    + "from_field, to_field, material_code, version FROM stock_items WHERE id = ?")) {
+                read.setObject(1, itemId);
+                try (ResultSet rs = read.executeQuery()) {
+                    rs.next();
+                    assertNull(rs.getString("ubb_code"));
+                    assertNull(rs.getObject("expiry_date"));
+                    assertEquals(ADDED, rs.getObject("date_added", LocalDate.class));
+                    assertEquals("Depo", rs.getString("from_field"));
+                    assertEquals("Yoğun Bakım", rs.getString("to_field"));
+                    assertEquals("MAT-1", rs.getString("material_code"));
+                    assertEquals(1L, rs.getLong("version"));
+                }
+            }
+        }
+    }
+
+    private Connection connect() throws SQLException {
+        Connection connection = DriverManager.getConnection(System.getProperty("stress.jdbc.url"),
+                System.getProperty("stress.jdbc.user", "postgres"),
+                System.getProperty("stress.jdbc.password", ""));
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SET search_path TO " + schema);
+        }
+        return connection;
+    }
+}
@@ -0,0 +1,121 @@
+package com.stok.app.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A writer whose transaction started before a sync and commits after it must
+ * show up in the next sync, however long it ran: its rows are stamped with the
+ * transaction start, which SYNC_WATERMARK_SQL keeps the watermark behind.
+ *
+ * Needs a PostgreSQL database and is skipped otherwise. The table and the
+ * V18 stamping trigger are created in a throwaway schema:
+ *
+ * mvn test -Dtest=StockSyncWatermarkTest
+ * -Dstress.jdbc.url=jdbc:postgresql://localhost:5432/stok_yonetim
+ * -Dstress.jdbc.user=postgres -Dstress.jdbc.password=...
+ */
+@EnabledIfSystemProperty(named = "stress.jdbc.url", matches = ".+")
+public class StockSyncWatermarkTest {
+
+    private final UUID userId = UUID.randomUUID();
+    private final String schema = "watermark_" + Long.toHexString(System.nanoTime());
+
+    @BeforeEach
+    void createTable() throws SQLException {
+        try (Connection connection = connect(); Statement ddl = connection.createStatement()) {
+            ddl.execute("CREATE SCHEMA " + schema);
+            ddl.execute("CREATE TABLE " + schema + ".stock_items (id UUID PRIMARY KEY, user_id UUID NOT NULL, "
+                    + "updated_at TIMESTAMP NOT NULL DEFAULT LOCALTIMESTAMP)");
+            ddl.execute("CREATE FUNCTION " + schema + ".touch() RETURNS trigger AS $$ "
+                    + "BEGIN NEW.updated_at := LOCALTIMESTAMP; RETURN NEW; END; $$ LANGUAGE plpgsql");
+            ddl.execute("CREATE TRIGGER trg_touch BEFORE INSERT OR UPDATE ON " + schema + ".stock_items "
+                    + "FOR EACH ROW EXECUTE FUNCTION " + schema + ".touch()");
+        }
+    }
+
+    @AfterEach
+    void dropSchema() throws SQLException {
+        try (Connection connection = connect(); Statement ddl = connection.createStatement()) {
+            ddl.execute("DROP SCHEMA " + schema + " CASCADE");
+        }
+    }
+
+    @Test
+    void writerCommittingAfterASync_IsInTheNextSync() throws Exception {
+        try (Connection writer = connect(); Connection sync = connect()) {
+            writer.setAutoCommit(false);
+            try (Statement statement = writer.createStatement()) {
+                // Opens the transaction; its rows are stamped with this moment
+                statement.execute("SELECT 1");
+            }
+            // Long past the start of the writer's transaction
+            Thread.sleep(1_500);
+            UUID written = UUID.randomUUID();
+            try (PreparedStatement insert = writer.prepareStatement(
+                    "INSERT INTO stock_items (id, user_id) VALUES (?, ?)")) {
+                insert.setObject(1, written);
+                insert.setObject(2, userId);
+                insert.executeUpdate();
+            }
+
+            String watermark = watermark(sync);
+            assertTrue(changedSince(sync, null).isEmpty(), "Uncommitted row must not be visible yet");
+
+            writer.commit();
+
+            assertEquals(List.of(written), changedSince(sync, watermark));
+        }
+    }
+
+    private String watermark(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery(StockItemRepository.SYNC_WATERMARK_SQL)) {
+            rs.next();
+            return rs.getString(1);
+        }
+    }
+
+    private List<UUID> changedSince(Connection connection, String since) throws SQLException {
+        String sql = "SELECT id FROM stock_items WHERE user_id = ?"
+                + (since != null ? " AND updated_at > CAST(? AS timestamp)" : "");
+        try (PreparedStatement read = connection.prepareStatement(sql)) {
+            read.setObject(1, userId);
+            if (since != null) {
+                read.setString(2, since);
+            }
+            List<UUID> ids = new ArrayList<>();
+            try (ResultSet rs = read.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getObject(1, UUID.class));
+                }
+            }
+            return ids;
+        }
+    }
+
+    private Connection connect() throws SQLException {
+        Connection connection = DriverManager.getConnection(System.getProperty("stress.jdbc.url"),
+                System.getProperty("stress.jdbc.user", "postgres"),
+                System.getProperty("stress.jdbc.password", ""));
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SET search_path TO " + schema);
+        }
+        return connection;
+    }
+}
@@ -0,0 +1,44 @@
+package com.stok.app.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class BulkDeleterTest {
+
+    @Test
+    void deleteInChunks_CommitsEachChunkUntilOneComesBackShort() {
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        BulkDeleter deleter = new BulkDeleter(transactionManager);
+
+        int[] remaining = { BulkDeleter.CHUNK_SIZE * 2 + 5 };
+        List<Integer> limits = new ArrayList<>();
+
+        long deleted = deleter.deleteInChunks(limit -> {
+            limits.add(limit);
+            int chunk = Math.min(limit, remaining[0]);
+            remaining[0] -= chunk;
+            return chunk;
+        });
+
+        assertEquals(BulkDeleter.CHUNK_SIZE * 2 + 5, deleted);
+        assertEquals(3, limits.size());
+        assertTrue(limits.stream().allMatch(limit -> limit == BulkDeleter.CHUNK_SIZE));
+        verify(transactionManager, times(3)).commit(any());
+    }
+
+    @Test
+    void deleteInChunks_NothingToDelete_RunsOneChunk() {
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        BulkDeleter deleter = new BulkDeleter(transactionManager);
+
+        assertEquals(0, deleter.deleteInChunks(limit -> 0));
+        verify(transactionManager, times(1)).commit(any());
+    }
+}
@@ -0,0 +1,89 @@
+package com.stok.app.service;
+
+import com.stok.app.entity.Notification;
+import com.stok.app.entity.NotificationType;
+import com.stok.app.repository.StockItemRepository;
+import com.stok.app.repository.projection.ExpiryAlertCandidate;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ExpiryAlertServiceTest {
+
+    @Mock
+    private StockItemRepository stockItemRepository;
+
+    @Mock
+    private NotificationService notificationService;
+
+    @InjectMocks
+    private ExpiryAlertService expiryAlertService;
+
+    private final LocalDate today = LocalDate.of(2026, 3, 1);
+
+    @Test
+    void alertNextBatch_SendsOneNotificationPerUserAndRecordsWatermark() {
+        UUID userA = UUID.randomUUID();
+        UUID userB = UUID.randomUUID();
+        List<ExpiryAlertCandidate> candidates = List.of(
+                candidate(userA, "Stent", "L1", today.plusDays(5), 7),
+                candidate(userA, "Kateter", "L2", today.plusDays(20), 30),
+                candidate(userB, "Balon", "L3", today.plusDays(60), 90));
+        when(stockItemRepository.findExpiryAlertCandidates(eq(today), eq(today.plusDays(7)),
+                eq(today.plusDays(30)), eq(today.plusDays(90)), anyInt())).thenReturn(candidates);
+
+        assertEquals(3, expiryAlertService.alertNextBatch(today));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Notification>> captor = ArgumentCaptor.forClass(List.class);
+        verify(notificationService).createNotifications(captor.capture());
+        List<Notification> notifications = captor.getValue();
+        assertEquals(2, notifications.size());
+
+        Notification first = notifications.get(0);
+        assertEquals(userA, first.getReceiverId());
+        assertEquals(NotificationType.EXPIRY_ALERT, first.getType());
+        assertNull(first.getActionStatus());
+        assertTrue(first.getTitle().startsWith("2 "));
+        assertTrue(first.getContent().contains("Stent (L1) - 06.03.2026 (5 gün"));
+        assertEquals(userB, notifications.get(1).getReceiverId());
+
+        verify(stockItemRepository).recordExpiryAlerts(candidates);
+    }
+
+    @Test
+    void alertNextBatch_NothingDue_WritesNothing() {
+        when(stockItemRepository.findExpiryAlertCandidates(any(), any(), any(), any(), anyInt()))
+                .thenReturn(List.of());
+
+        assertEquals(0, expiryAlertService.alertNextBatch(today));
+
+        verifyNoInteractions(notificationService);
+        verify(stockItemRepository, never()).recordExpiryAlerts(any());
+    }
+
+    private ExpiryAlertCandidate candidate(UUID userId, String name, String serial, LocalDate expiry, int threshold) {
+        UUID id = UUID.randomUUID();
+        return new ExpiryAlertCandidate() {
+            public UUID getId() { return id; }
+            public UUID getUserId() { return userId; }
+            public String getMaterialName() { return name; }
+            public String getSerialLotNumber() { return serial; }
+            public LocalDate getExpiryDate() { return expiry; }
+            public Integer getQuantity() { return 1; }
+            public Integer getThresholdDays() { return threshold; }
+        };
+    }
+}
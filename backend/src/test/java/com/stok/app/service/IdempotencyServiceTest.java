@@ -0,0 +1,110 @@
+package com.stok.app.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stok.app.dto.response.ApiResponse;
+import com.stok.app.dto.response.BulkImportResponse;
+import com.stok.app.entity.IdempotencyKey;
+import com.stok.app.repository.IdempotencyKeyRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class IdempotencyServiceTest {
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository = mock(IdempotencyKeyRepository.class);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private IdempotencyService idempotencyService;
+
+    private final UUID userId = UUID.randomUUID();
+    private final AtomicInteger writes = new AtomicInteger();
+
+    private final Supplier<ResponseEntity<ApiResponse<BulkImportResponse>>> importWrite = () -> {
+        writes.incrementAndGet();
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(ApiResponse.success("Bulk import completed", new BulkImportResponse(2, 5, 0, List.of(), List.of())));
+    };
+
+    @BeforeEach
+    void setUp() {
+        idempotencyService = new IdempotencyService(idempotencyKeyRepository, objectMapper,
+                mock(PlatformTransactionManager.class));
+    }
+
+    @Test
+    void execute_RetryWithSameKey_ReplaysResponseFromMemory() {
+        when(idempotencyKeyRepository.claim(eq(userId), eq("key-1"), anyInt())).thenReturn(1);
+
+        ResponseEntity<ApiResponse<BulkImportResponse>> first = idempotencyService.execute(userId, "key-1",
+                "POST /stocks/bulk-import", List.of("a"), BulkImportResponse.class, importWrite);
+        ResponseEntity<ApiResponse<BulkImportResponse>> retry = idempotencyService.execute(userId, "key-1",
+                "POST /stocks/bulk-import", List.of("a"), BulkImportResponse.class, importWrite);
+
+        assertEquals(1, writes.get());
+        verify(idempotencyKeyRepository).storeResponse(eq(userId), eq("key-1"), anyString(), eq(201), anyString());
+        verify(idempotencyKeyRepository, times(1)).claim(any(), any(), anyInt());
+        assertEquals(HttpStatus.CREATED, retry.getStatusCode());
+        assertEquals("true", retry.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertNull(first.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals(5, retry.getBody().getData().getSavedQuantity());
+    }
+
+    @Test
+    void execute_KeyStoredByAnotherInstance_ReplaysFromDatabase() {
+        // Another instance ran the write and stored its response
+        IdempotencyService otherInstance = new IdempotencyService(idempotencyKeyRepository, objectMapper,
+                mock(PlatformTransactionManager.class));
+        IdempotencyKey stored = new IdempotencyKey();
+        when(idempotencyKeyRepository.claim(eq(userId), eq("key-1"), anyInt())).thenReturn(1, 0);
+        doAnswer(invocation -> {
+            stored.setRequestHash(invocation.getArgument(2));
+            stored.setStatusCode(invocation.getArgument(3));
+            stored.setResponseBody(invocation.getArgument(4));
+            return 1;
+        }).when(idempotencyKeyRepository).storeResponse(eq(userId), eq("key-1"), anyString(), anyInt(), anyString());
+        when(idempotencyKeyRepository.findByUserIdAndIdempotencyKey(userId, "key-1")).thenReturn(Optional.of(stored));
+        otherInstance.execute(userId, "key-1", "POST /stocks/bulk-import", List.of("a"),
+                BulkImportResponse.class, importWrite);
+
+        ResponseEntity<ApiResponse<BulkImportResponse>> retry = idempotencyService.execute(userId, "key-1",
+                "POST /stocks/bulk-import", List.of("a"), BulkImportResponse.class, importWrite);
+
+        assertEquals(1, writes.get());
+        assertEquals(HttpStatus.CREATED, retry.getStatusCode());
+        assertEquals(2, retry.getBody().getData().getSavedCount());
+    }
+
+    @Test
+    void execute_KeyReusedForDifferentRequest_IsRejected() {
+        when(idempotencyKeyRepository.claim(eq(userId), eq("key-1"), anyInt())).thenReturn(1);
+        idempotencyService.execute(userId, "key-1", "POST /stocks/bulk-import", List.of("a"),
+                BulkImportResponse.class, importWrite);
+
+        assertThrows(IllegalArgumentException.class, () -> idempotencyService.execute(userId, "key-1",
+                "POST /stocks/bulk-import", List.of("b"), BulkImportResponse.class, importWrite));
+        assertEquals(1, writes.get());
+    }
+
+    @Test
+    void execute_WithoutKey_JustRunsTheWrite() {
+        idempotencyService.execute(userId, null, "POST /stocks/bulk-import", List.of("a"),
+                BulkImportResponse.class, importWrite);
+        idempotencyService.execute(userId, null, "POST /stocks/bulk-import", List.of("a"),
+                BulkImportResponse.class, importWrite);
+
+        assertEquals(2, writes.get());
+        verifyNoInteractions(idempotencyKeyRepository);
+    }
+}
@@ -0,0 +1,92 @@
+package com.stok.app.service;
+
+import com.stok.app.dto.request.StockItemRequest;
+import com.stok.app.entity.User;
+import com.stok.app.repository.StockItemRepository;
+import com.stok.app.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Bulk stock entry must reach the database as JDBC batches of
+ * hibernate.jdbc.batch_size rows, not one INSERT per row. Uses the batch
+ * settings of application.yml on an in-memory H2 schema generated from the
+ * entities.
+ */
+@DataJpaTest
+@TestPropertySource(properties = {
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+public class StockBulkInsertBatchingTest {
+
+    // More than two batches of hibernate.jdbc.batch_size (100)
+    private static final int ROWS = 250;
+
+    @Autowired
+    private StockItemRepository stockItemRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private StockService stockService;
+    private Statistics statistics;
+    private UUID userId;
+
+    @BeforeEach
+    void setUp() {
+        stockService = new StockService(stockItemRepository, userRepository, mock(HistoryService.class),
+                mock(AuditLogService.class), mock(NotificationService.class), mock(StockReadCache.class),
+                mock(StockSearchIndex.class), mock(com.stok.app.repository.StockTransferRepository.class),
+                mock(BulkDeleter.class), mock(StockMovementService.class), mock(StockKeyFilter.class));
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+
+        User user = new User();
+        user.setUsername("bulk-user");
+        user.setFullName("Bulk User");
+        entityManager.persist(user);
+        entityManager.flush();
+        entityManager.clear();
+        userId = user.getId();
+        statistics.clear();
+    }
+
+    @Test
+    void addStockItems_InsertsInJdbcBatches() {
+        List<StockItemRequest> requests = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            StockItemRequest request = new StockItemRequest();
+            request.setMaterialName("Stent");
+            request.setSerialLotNumber("LOT-" + i);
+            request.setQuantity(1);
+            request.setDateAdded(LocalDate.now());
+            requests.add(request);
+        }
+
+        stockService.addStockItems(requests, userId);
+
+        assertEquals(ROWS, statistics.getEntityInsertCount());
+        // The owner lookup and one INSERT reused for every batch; without
+        // batching each row prepares its own INSERT
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+}
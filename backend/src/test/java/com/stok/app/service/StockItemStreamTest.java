@@ -0,0 +1,74 @@
+package com.stok.app.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.stok.app.dto.request.StockItemRequest;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StockItemStreamTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    private StockItemStream open(String json, int chunkSize) {
+        return new StockItemStream(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), objectMapper,
+                Validation.buildDefaultValidatorFactory().getValidator(), chunkSize);
+    }
+
+    private static String rows(int count) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            json.append(i == 0 ? "" : ",")
+                    .append("{\"materialName\":\"Stent\",\"serialLotNumber\":\"LOT-").append(i)
+                    .append("\",\"quantity\":1,\"expiryDate\":\"2027-01-31\"}");
+        }
+        return json.append("]").toString();
+    }
+
+    @Test
+    void next_ReadsTheArrayInChunks() {
+        StockItemStream stream = open(rows(5), 2);
+
+        List<List<StockItemRequest>> chunks = new java.util.ArrayList<>();
+        stream.forEachRemaining(chunks::add);
+
+        assertEquals(List.of(2, 2, 1), chunks.stream().map(List::size).toList());
+        assertEquals("LOT-4", chunks.get(2).get(0).getSerialLotNumber());
+        assertEquals(5, stream.rowCount());
+    }
+
+    @Test
+    void next_EmptyArray_HasNoChunks() {
+        assertFalse(open("[]", 2).hasNext());
+    }
+
+    @Test
+    void next_InvalidRow_FailsWithItsIndex() {
+        StockItemStream stream = open("[{\"materialName\":\"Stent\",\"serialLotNumber\":\"A\",\"quantity\":1},"
+                + "{\"materialName\":\"Stent\",\"serialLotNumber\":\"B\",\"quantity\":0}]", 10);
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, stream::next);
+        assertTrue(e.getMessage().startsWith("Row 1: quantity"));
+    }
+
+    @Test
+    void next_BodyIsNotAnArray_IsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> open("{\"materialName\":\"Stent\"}", 10).hasNext());
+    }
+
+    @Test
+    void digest_CoversTheWholeBodyHoweverMuchWasRead() {
+        String json = rows(3);
+        StockItemStream partlyRead = open(json, 1);
+        partlyRead.next();
+
+        assertEquals(open(json, 10).digest(), partlyRead.digest());
+        assertNotEquals(open(rows(2), 10).digest(), partlyRead.digest());
+    }
+}
@@ -0,0 +1,89 @@
+package com.stok.app.service;
+
+import com.stok.app.dto.response.StockItemResponse;
+import com.stok.app.repository.projection.StockKeyProjection;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiPredicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StockKeyFilterTest {
+
+    private final StockKeyFilter filter = new StockKeyFilter();
+    private final UUID userId = UUID.randomUUID();
+
+    @Test
+    void filterFor_HasNoFalseNegativesAndFewFalsePositives() {
+        List<StockKeyProjection> keys = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            keys.add(key("Stent", "LOT-" + i));
+        }
+        BiPredicate<String, String> mightExist = filter.filterFor(userId, () -> keys);
+
+        for (int i = 0; i < 5000; i++) {
+            assertTrue(mightExist.test("Stent", "LOT-" + i));
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (mightExist.test("Stent", "NEW-" + i)) {
+                falsePositives++;
+            }
+        }
+        // Sized for 1% at twice the loaded keys
+        assertTrue(falsePositives < 200, "false positives: " + falsePositives);
+    }
+
+    @Test
+    void add_KeepsLoadedFilterCurrentWithoutReloading() {
+        AtomicInteger loads = new AtomicInteger();
+        filter.filterFor(userId, () -> {
+            loads.incrementAndGet();
+            return List.of(key("Stent", "LOT-1"));
+        });
+
+        filter.add(userId, List.of(item("Stent", "LOT-2")));
+        BiPredicate<String, String> mightExist = filter.filterFor(userId, List::of);
+
+        assertEquals(1, loads.get());
+        assertTrue(mightExist.test("Stent", "LOT-1"));
+        assertTrue(mightExist.test("Stent", "LOT-2"));
+    }
+
+    @Test
+    void evict_RebuildsOnNextCheck() {
+        filter.filterFor(userId, () -> List.of(key("Stent", "LOT-1")));
+        filter.evict(userId);
+
+        BiPredicate<String, String> mightExist = filter.filterFor(userId, () -> List.of(key("Stent", "LOT-9")));
+
+        assertTrue(mightExist.test("Stent", "LOT-9"));
+    }
+
+    private static StockKeyProjection key(String materialName, String serialLotNumber) {
+        return new StockKeyProjection() {
+            @Override
+            public String getMaterialName() {
+                return materialName;
+            }
+
+            @Override
+            public String getSerialLotNumber() {
+                return serialLotNumber;
+            }
+        };
+    }
+
+    private static StockItemResponse item(String materialName, String serialLotNumber) {
+        return StockItemResponse.builder()
+                .id(UUID.randomUUID())
+                .materialName(materialName)
+                .serialLotNumber(serialLotNumber)
+                .quantity(1)
+                .build();
+    }
+}
@@ -0,0 +1,152 @@
+package com.stok.app.service;
+
+import com.stok.app.dto.request.StockItemRequest;
+import com.stok.app.entity.StockItem;
+import com.stok.app.entity.User;
+import com.stok.app.repository.StockItemRepository;
+import com.stok.app.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * A stock update carries absolute values, so one based on a stale read must be
+ * rejected rather than written over a concurrent change: both when the client
+ * sends the version it read and when another update commits between the read
+ * and the write. Runs the proxied StockService on an in-memory H2 schema
+ * generated from the entities, without a test-managed transaction.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(StockService.class)
+@TestPropertySource(properties = {
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+public class StockOptimisticLockTest {
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private StockItemRepository stockItemRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @MockBean
+    private HistoryService historyService;
+    @MockBean
+    private AuditLogService auditLogService;
+    @MockBean
+    private NotificationService notificationService;
+    @MockBean
+    private StockReadCache stockReadCache;
+    @MockBean
+    private StockSearchIndex stockSearchIndex;
+    @MockBean
+    private BulkDeleter bulkDeleter;
+    @MockBean
+    private StockMovementService stockMovementService;
+    @MockBean
+    private StockKeyFilter stockKeyFilter;
+
+    private UUID userId;
+    private UUID itemId;
+
+    @BeforeEach
+    void setUp() {
+        User user = new User();
+        user.setUsername("lock-user");
+        user.setFullName("Lock User");
+        user = userRepository.save(user);
+        userId = user.getId();
+
+        StockItem item = new StockItem();
+        item.setMaterialName("Stent");
+        item.setSerialLotNumber("LOT-1");
+        item.setQuantity(10);
+        item.setDateAdded(LocalDate.now());
+        item.setUser(user);
+        itemId = stockItemRepository.save(item).getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        stockItemRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void updateStockItem_StaleClientVersion_IsRejected() {
+        stockService.updateStockItem(itemId, userId, request(7, 0L));
+
+        // A second client still holding version 0
+        assertThrows(ObjectOptimisticLockingFailureException.class,
+                () -> stockService.updateStockItem(itemId, userId, request(5, 0L)));
+
+        StockItem stored = stockItemRepository.findById(itemId).orElseThrow();
+        assertEquals(7, stored.getQuantity());
+        assertEquals(1L, stored.getVersion());
+    }
+
+    @Test
+    void updateStockItem_ConcurrentUpdateInBetween_IsRejectedNotReapplied() throws Exception {
+        ExecutorService otherRequest = Executors.newSingleThreadExecutor();
+        AtomicBoolean interleaved = new AtomicBoolean();
+        try {
+            // The update has read the row and changed it, but not yet committed,
+            // when another request updates the same row
+            doAnswer(invocation -> {
+                if (interleaved.compareAndSet(false, true)) {
+                    otherRequest.submit(() -> stockService.updateStockItem(itemId, userId, request(7, null))).get();
+                }
+                return null;
+            }).when(auditLogService).log(eq("UPDATE_STOCK"), eq("StockItem"), any(), anyString());
+
+            assertThrows(ObjectOptimisticLockingFailureException.class,
+                    () -> stockService.updateStockItem(itemId, userId, request(5, null)));
+        } finally {
+            otherRequest.shutdownNow();
+        }
+
+        StockItem stored = stockItemRepository.findById(itemId).orElseThrow();
+        assertEquals(7, stored.getQuantity());
+        assertEquals(1L, stored.getVersion());
+        verify(auditLogService, times(2)).log(eq("UPDATE_STOCK"), eq("StockItem"), any(), anyString());
+    }
+
+    private StockItemRequest request(int quantity, Long version) {
+        StockItemRequest request = new StockItemRequest();
+        request.setVersion(version);
+        request.setMaterialName("Stent");
+        request.setSerialLotNumber("LOT-1");
+        request.setQuantity(quantity);
+        request.setDateAdded(LocalDate.now());
+        return request;
+    }
+}
@@ -0,0 +1,85 @@
+package com.stok.app.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StockReadCacheTest {
+
+    private final StockReadCache cache = new StockReadCache();
+
+    @Test
+    void etag_ChangesOnlyForInvalidatedUser() {
+        UUID changed = UUID.randomUUID();
+        UUID untouched = UUID.randomUUID();
+        String changedBefore = cache.etag("all", changed, "");
+        String untouchedBefore = cache.etag("all", untouched, "");
+        String allUsersBefore = cache.etag("all", null, "");
+
+        cache.invalidate(changed);
+
+        assertNotEquals(changedBefore, cache.etag("all", changed, ""));
+        assertEquals(untouchedBefore, cache.etag("all", untouched, ""));
+        assertNotEquals(allUsersBefore, cache.etag("all", null, ""));
+    }
+
+    @Test
+    void get_LoadsOncePerVersion() {
+        UUID userId = UUID.randomUUID();
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get(cache.etag("all", userId, ""), () -> List.of(loads.incrementAndGet()));
+        cache.get(cache.etag("all", userId, ""), () -> List.of(loads.incrementAndGet()));
+        assertEquals(1, loads.get());
+
+        cache.invalidate(userId);
+        cache.get(cache.etag("all", userId, ""), () -> List.of(loads.incrementAndGet()));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void get_EvictsLeastRecentlyReadResultsBeyondTheRowLimit() {
+        AtomicInteger loads = new AtomicInteger();
+        int half = StockReadCache.MAX_WEIGHT / 2;
+        String first = cache.etag("all", UUID.randomUUID(), "");
+        String second = cache.etag("all", UUID.randomUUID(), "");
+        String third = cache.etag("all", UUID.randomUUID(), "");
+
+        cache.get(first, loads::incrementAndGet, value -> half);
+        cache.get(second, loads::incrementAndGet, value -> half);
+        cache.get(first, loads::incrementAndGet, value -> half);
+        // Over the limit: the second result was read least recently
+        cache.get(third, loads::incrementAndGet, value -> half);
+        assertEquals(3, loads.get());
+
+        cache.get(first, loads::incrementAndGet, value -> half);
+        assertEquals(3, loads.get());
+        cache.get(second, loads::incrementAndGet, value -> half);
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    void get_DoesNotCacheResultsHeavierThanTheWholeCache() {
+        AtomicInteger loads = new AtomicInteger();
+        String etag = cache.etag("all", null, "");
+
+        cache.get(etag, loads::incrementAndGet, value -> StockReadCache.MAX_WEIGHT + 1);
+        cache.get(etag, loads::incrementAndGet, value -> StockReadCache.MAX_WEIGHT + 1);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void matches_HandlesListsAndWildcard() {
+        String etag = cache.etag("grouped", UUID.randomUUID(), "x");
+
+        assertTrue(cache.matches("\"other\", " + etag, etag));
+        assertTrue(cache.matches("*", etag));
+        assertFalse(cache.matches("\"other\"", etag));
+        assertFalse(cache.matches(null, etag));
+    }
+}
@@ -0,0 +1,98 @@
+package com.stok.app.service;
+
+import com.stok.app.entity.StockItem;
+import com.stok.app.entity.User;
+import com.stok.app.repository.StockItemRepository;
+import com.stok.app.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Stock read paths must cost the same number of statements whatever the
+ * number of distinct owners, i.e. owners are never loaded one by one.
+ * Runs on an in-memory H2 schema generated from the entities.
+ */
+@DataJpaTest
+@TestPropertySource(properties = {
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+public class StockReadQueryCountTest {
+
+    private static final int OWNERS = 5;
+
+    @Autowired
+    private StockItemRepository stockItemRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private StockService stockService;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        stockService = new StockService(stockItemRepository, userRepository, mock(HistoryService.class),
+                mock(AuditLogService.class), mock(NotificationService.class), mock(StockReadCache.class),
+                mock(StockSearchIndex.class), mock(com.stok.app.repository.StockTransferRepository.class),
+                mock(BulkDeleter.class), mock(StockMovementService.class), mock(StockKeyFilter.class));
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+
+        for (int owner = 0; owner < OWNERS; owner++) {
+            User user = new User();
+            user.setUsername("owner" + owner);
+            user.setFullName("Owner " + owner);
+            entityManager.persist(user);
+            for (int lot = 0; lot < 2; lot++) {
+                StockItem item = new StockItem();
+                item.setMaterialName("Stent");
+                item.setSerialLotNumber("L" + owner + "-" + lot);
+                item.setQuantity(1);
+                item.setDateAdded(LocalDate.now());
+                item.setUser(user);
+                entityManager.persist(item);
+            }
+        }
+        entityManager.flush();
+        // Owners must be fetched by the read itself, not found in the session
+        entityManager.clear();
+        statistics.clear();
+    }
+
+    @Test
+    void getAllStock_AllUsers_RunsOneStatement() {
+        List<com.stok.app.dto.response.StockItemResponse> items = stockService.getAllStock(null);
+
+        assertEquals(OWNERS * 2, items.size());
+        assertTrue(items.stream().allMatch(item -> item.getOwnerName().startsWith("Owner ")));
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void getMaterialItems_AllUsers_FetchesOwnersInTheSameStatement() {
+        List<com.stok.app.dto.response.StockItemResponse> items = stockService.getMaterialItems(
+                null, "Stent", null, null);
+
+        assertEquals(OWNERS * 2, items.size());
+        assertTrue(items.stream().allMatch(item -> item.getOwnerName().startsWith("Owner ")));
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+}
@@ -0,0 +1,60 @@
+package com.stok.app.service;
+
+import com.stok.app.dto.response.StockItemResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StockSearchIndexTest {
+
+    private final StockSearchIndex index = new StockSearchIndex();
+    private final UUID userId = UUID.randomUUID();
+
+    @Test
+    void search_BuildsOnceAndRanksSerialPrefixFirst() {
+        StockItemResponse byName = item("Vida AB12 Titanyum", "LOT-999");
+        StockItemResponse bySerial = item("Plak", "AB12-0001");
+        AtomicInteger loads = new AtomicInteger();
+
+        List<StockItemResponse> first = index.search(userId, "ab12", 10, () -> {
+            loads.incrementAndGet();
+            return List.of(byName, bySerial);
+        });
+        List<StockItemResponse> second = index.search(userId, "AB12", 10, List::of);
+
+        assertEquals(1, loads.get());
+        assertEquals(List.of(bySerial, byName), first);
+        assertEquals(first, second);
+    }
+
+    @Test
+    void upsertAndRemove_KeepLoadedIndexCurrent() {
+        StockItemResponse existing = item("Kemik Çivisi", "KC-1");
+        index.search(userId, "kc", 10, () -> List.of(existing));
+
+        StockItemResponse added = item("Kemik Vidası", "KV-7");
+        index.upsert(userId, List.of(added));
+        index.remove(userId, existing.getId());
+
+        assertEquals(List.of(added), index.search(userId, "kemik", 10, List::of));
+        assertTrue(index.search(userId, "kc-1", 10, List::of).isEmpty());
+    }
+
+    @Test
+    void search_ShortQueryReturnsNothing() {
+        assertTrue(index.search(userId, "a", 10, () -> List.of(item("Anchor", "A1"))).isEmpty());
+    }
+
+    private StockItemResponse item(String materialName, String serial) {
+        return StockItemResponse.builder()
+                .id(UUID.randomUUID())
+                .materialName(materialName)
+                .serialLotNumber(serial)
+                .quantity(1)
+                .build();
+    }
+}
@@ -1,23 +1,31 @@
 package com.stok.app.service;
 
+import com.stok.app.dto.request.RemoveStockRequest;
 import com.stok.app.dto.request.StockItemRequest;
 import com.stok.app.entity.StockItem;
 import com.stok.app.entity.User;
 import com.stok.app.repository.StockItemRepository;
 import com.stok.app.repository.UserRepository;
+import com.stok.app.repository.projection.StockItemRowProjection;
+import com.stok.app.repository.projection.StockKeyProjection;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.LocalDate;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -35,6 +43,27 @@ public class StockServiceTest {
     @Mock
     private AuditLogService auditLogService;
 
+    @Mock
+    private NotificationService notificationService;
+
+    @Mock
+    private com.stok.app.repository.StockTransferRepository stockTransferRepository;
+
+    @Mock
+    private StockReadCache stockReadCache;
+
+    @Mock
+    private StockSearchIndex stockSearchIndex;
+
+    @Mock
+    private StockMovementService stockMovementService;
+
+    @Mock
+    private StockKeyFilter stockKeyFilter;
+
+    @Mock
+    private BulkDeleter bulkDeleter;
+
     @InjectMocks
     private StockService stockService;
 
@@ -92,4 +121,458 @@ public class StockServiceTest {
         // Act & Assert
         assertThrows(IllegalArgumentException.class, () -> stockService.addStockItem(request, userId));
     }
+
+    @Test
+    void getStockPage_ReturnsCursorThatResumesAfterLastRow() {
+        // Arrange
+        StockItemRowProjection first = row("Anchor 5mm", UUID.randomUUID());
+        StockItemRowProjection second = row("Anchor 5mm", UUID.randomUUID());
+        StockItemRowProjection extra = row("Screw", UUID.randomUUID());
+
+        when(stockItemRepository.findPageByUserIdAfter(eq(userId), eq(""), any(), eq(3)))
+                .thenReturn(List.of(first, second, extra));
+        when(stockItemRepository.findPageByUserIdAfter(userId, "Anchor 5mm", second.getId(), 3))
+                .thenReturn(List.of(extra));
+
+        // Act
+        var firstPage = stockService.getStockPage(userId, null, 2);
+        var secondPage = stockService.getStockPage(userId, firstPage.getNextCursor(), 2);
+
+        // Assert
+        assertTrue(firstPage.isHasMore());
+        assertEquals(2, firstPage.getItems().size());
+        assertFalse(secondPage.isHasMore());
+        assertNull(secondPage.getNextCursor());
+        assertEquals("Screw", secondPage.getItems().get(0).getMaterialName());
+    }
+
+    @Test
+    void getStockPage_InvalidCursor_ThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> stockService.getStockPage(userId, "not-a-cursor", 10));
+        verify(stockItemRepository, never()).findPageByUserIdAfter(any(), any(), any(), anyInt());
+    }
+
+    @Test
+    void bulkImport_DryRun_ReportsSplitWithoutWriting() {
+        // Arrange
+        StockKeyProjection existing = mock(StockKeyProjection.class);
+        when(existing.getMaterialName()).thenReturn("Test Material");
+        when(existing.getSerialLotNumber()).thenReturn("SN1");
+
+        when(userRepository.findById(userId)).thenReturn(Optional.of(testUser));
+        when(stockItemRepository.findExistingKeys(eq(userId), any(), any())).thenReturn(List.of(existing));
+
+        List<StockItemRequest> requests = List.of(
+                request("Test Material", "SN1", 5),
+                request("Test Material", "SN2", 3),
+                request("Test Material", "SN2", 3));
+
+        // Act
+        var result = stockService.bulkImportWithDuplicateCheck(requests, userId, true);
+
+        // Assert
+        assertEquals(1, result.getSavedCount());
+        assertEquals(3, result.getSavedQuantity());
+        assertEquals(2, result.getSkippedCount());
+        verify(stockItemRepository, never()).saveAll(any());
+        verify(stockItemRepository, never()).findByMaterialNameAndSerialLotNumberAndUserId(any(), any(), any());
+        verifyNoInteractions(historyService, stockReadCache);
+    }
+
+    @Test
+    void copyImport_WritesSingleHistoryRecord() {
+        // Arrange
+        List<StockItemRequest> requests = List.of(
+                request("Test Material", "SN1", 5),
+                request("Test Material", "SN2", 3));
+
+        when(userRepository.existsById(userId)).thenReturn(true);
+        when(stockItemRepository.importViaCopy(userId, requests))
+                .thenReturn(new com.stok.app.repository.projection.StagedImportResult(2, 1, 5));
+
+        // Act
+        var result = stockService.copyImport(requests, userId);
+
+        // Assert
+        assertEquals(1, result.getSavedCount());
+        assertEquals(5, result.getSavedQuantity());
+        assertEquals(1, result.getSkippedCount());
+        verify(historyService, times(1)).addHistory(eq(userId), eq("stock-add"), any(), any());
+        verify(stockItemRepository, never()).save(any(StockItem.class));
+    }
+
+    @Test
+    void getStockSummary_ReadsCountersAndAddsExpiringCounts() {
+        // Arrange
+        List<com.stok.app.repository.projection.PrefixSummaryRow> counters = List.of(
+                prefixRow("Kateter", 3, 12), prefixRow("Stent", 2, 4));
+        List<com.stok.app.repository.projection.PrefixSummaryRow> expiring = List.of(prefixRow("Stent", 1, 2));
+        when(stockItemRepository.findSummaryByUserId(userId)).thenReturn(counters);
+        when(stockItemRepository.findExpiringByUserId(eq(userId), any(), any())).thenReturn(expiring);
+
+        // Act
+        com.stok.app.dto.response.StockSummaryResponse summary = stockService.getStockSummary(userId);
+
+        // Assert
+        assertEquals(5, summary.getItemCount());
+        assertEquals(16, summary.getUnitCount());
+        assertEquals(1, summary.getExpiringSoonCount());
+        assertEquals(0, summary.getPrefixes().get(0).getExpiringSoonCount());
+        assertEquals(1, summary.getPrefixes().get(1).getExpiringSoonCount());
+        verify(stockItemRepository, never()).findAll();
+    }
+
+    @Test
+    void getChanges_WithWatermark_ReturnsDeltaAndNextWatermark() {
+        // Arrange
+        String since = "2026-03-01 10:00:00.123456";
+        String token = java.util.Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(since.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+        UUID deletedId = UUID.randomUUID();
+        StockItemRowProjection changedRow = row("Stent", UUID.randomUUID());
+        when(stockItemRepository.currentSyncWatermark()).thenReturn("2026-03-02 09:59:00");
+        when(stockItemRepository.isSyncWatermarkExpired(eq(since), anyInt())).thenReturn(false);
+        when(stockItemRepository.findRowsChangedSince(userId, since)).thenReturn(List.of(changedRow));
+        when(stockItemRepository.findDeletedIdsSince(userId, since)).thenReturn(List.of(deletedId));
+
+        // Act
+        com.stok.app.dto.response.StockChangesResponse changes = stockService.getChanges(userId, token);
+
+        // Assert
+        assertFalse(changes.isFullSync());
+        assertEquals(1, changes.getChanged().size());
+        assertEquals(List.of(deletedId), changes.getDeleted());
+        assertEquals("2026-03-02 09:59:00", new String(java.util.Base64.getUrlDecoder()
+                .decode(changes.getWatermark()), java.nio.charset.StandardCharsets.UTF_8));
+        verify(stockItemRepository, never()).findRowsByUserId(any());
+    }
+
+    @Test
+    void getChanges_InvalidWatermark_Throws() {
+        assertThrows(IllegalArgumentException.class, () -> stockService.getChanges(userId, "bm90LWEtZGF0ZQ"));
+        verifyNoInteractions(stockItemRepository);
+    }
+
+    @Test
+    void removeStockItems_DeductsInOneStatementAndBatchesHistory() {
+        // Arrange
+        UUID itemId = UUID.randomUUID();
+        when(stockItemRepository.deductStock(eq(userId), any(), any(), any()))
+                .thenReturn(List.of(new com.stok.app.repository.projection.StockDeductionRow(
+                        itemId, "Test Material", "SN1", 2)));
+
+        // Act
+        stockService.removeStockItems(List.of(
+                removeRequest("Test Material", "SN1", 1),
+                removeRequest("Test Material", "SN1", 2)), userId);
+
+        // Assert: repeated lines are summed into one deduction
+        verify(stockItemRepository).deductStock(userId, new String[] { "Test Material" }, new String[] { "SN1" },
+                new int[] { 3 });
+        verify(historyService).addHistories(eq(userId), eq("stock-remove"), argThat(entries -> entries.size() == 2));
+        verify(historyService, never()).addHistory(any(), any(), any(), any());
+        verify(stockItemRepository, never()).findByMaterialNameAndSerialLotNumberAndUserId(any(), any(), any());
+    }
+
+    @Test
+    void removeStockItems_RecordsOneLedgerMovementPerLot() {
+        // Arrange
+        UUID caseId = UUID.randomUUID();
+        when(stockItemRepository.deductStock(eq(userId), any(), any(), any()))
+                .thenReturn(List.of(new com.stok.app.repository.projection.StockDeductionRow(
+                        UUID.randomUUID(), "Test Material", "SN1", 0)));
+
+        // Act
+        stockService.removeStockItems(List.of(
+                removeRequest("Test Material", "SN1", 1),
+                removeRequest("Test Material", "SN1", 2)), userId,
+                com.stok.app.entity.StockMovementType.CASE_USE, caseId);
+
+        // Assert
+        verify(stockMovementService).recordAll(argThat(movements -> movements.size() == 1
+                && movements.get(0).getMovementType() == com.stok.app.entity.StockMovementType.CASE_USE
+                && movements.get(0).getQuantityDelta() == -3
+                && caseId.equals(movements.get(0).getReferenceId())));
+    }
+
+    @Test
+    void removeStockItems_ShortLine_ThrowsAndWritesNoHistory() {
+        // Arrange
+        when(stockItemRepository.deductStock(eq(userId), any(), any(), any())).thenReturn(List.of());
+        when(stockItemRepository.findByMaterialNameAndSerialLotNumberAndUserId("Test Material", "SN1", userId))
+                .thenReturn(Optional.of(new StockItem()));
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> stockService.removeStockItems(
+                List.of(removeRequest("Test Material", "SN1", 5)), userId));
+        verifyNoInteractions(historyService);
+    }
+
+    @Test
+    void initiateTransfer_ValidatesRepeatedItemsAgainstLockedRows() {
+        // Arrange
+        UUID receiverId = UUID.randomUUID();
+        UUID itemId = UUID.randomUUID();
+        StockItem stockItem = new StockItem();
+        stockItem.setId(itemId);
+        stockItem.setMaterialName("Test Material");
+        stockItem.setQuantity(5);
+        stockItem.setUser(testUser);
+
+        when(userRepository.findById(userId)).thenReturn(Optional.of(testUser));
+        when(userRepository.findById(receiverId)).thenReturn(Optional.of(new User()));
+        when(stockItemRepository.findAllByIdForUpdate(List.of(itemId))).thenReturn(List.of(stockItem));
+
+        // Act & Assert: 3 + 3 exceeds the 5 on the row even though each line fits
+        assertThrows(IllegalArgumentException.class, () -> stockService.initiateTransfer(userId, receiverId,
+                List.of(transferItem(itemId, 3), transferItem(itemId, 3))));
+        verify(stockItemRepository, never()).findById(any());
+        verify(stockItemRepository, never()).save(any(StockItem.class));
+    }
+
+    @Test
+    void processTransfer_Approve_MergesAllLinesInOneUpsert() {
+        // Arrange
+        UUID senderId = UUID.randomUUID();
+        UUID notificationId = UUID.randomUUID();
+        UUID transferId = UUID.randomUUID();
+        com.stok.app.entity.Notification notification = com.stok.app.entity.Notification.builder()
+                .id(notificationId)
+                .senderId(senderId)
+                .receiverId(userId)
+                .type(com.stok.app.entity.NotificationType.TRANSFER_REQUEST)
+                .transferId(transferId)
+                .build();
+        com.stok.app.entity.StockTransfer transfer = new com.stok.app.entity.StockTransfer();
+        transfer.setId(transferId);
+        transfer.addItem(transferLine("SN1", 2));
+        transfer.addItem(transferLine("SN2", 4));
+
+        when(notificationService.getNotification(notificationId)).thenReturn(notification);
+        when(stockTransferRepository.transitionStatus(transferId, com.stok.app.entity.NotificationActionStatus.WAITING,
+                com.stok.app.entity.NotificationActionStatus.APPROVED)).thenReturn(1);
+        when(stockTransferRepository.findById(transferId)).thenReturn(Optional.of(transfer));
+        when(userRepository.findById(senderId)).thenReturn(Optional.empty());
+        when(userRepository.findById(userId)).thenReturn(Optional.of(testUser));
+        when(stockItemRepository.upsertStock(eq(userId), any())).thenReturn(2);
+
+        // Act
+        stockService.processTransfer(notificationId, com.stok.app.entity.NotificationActionStatus.APPROVED);
+
+        // Assert
+        verify(stockItemRepository).upsertStock(eq(userId), argThat(rows -> rows.size() == 2));
+        verify(stockItemRepository, never()).findByMaterialNameAndSerialLotNumberAndUserId(any(), any(), any());
+        verify(stockItemRepository, never()).save(any(StockItem.class));
+        verify(historyService, times(1)).addHistory(eq(userId), eq("stock-add"), any(), any());
+    }
+
+    @Test
+    void processTransfer_AlreadyProcessed_ThrowsWithoutTouchingStock() {
+        // Arrange
+        UUID notificationId = UUID.randomUUID();
+        UUID transferId = UUID.randomUUID();
+        when(notificationService.getNotification(notificationId)).thenReturn(
+                com.stok.app.entity.Notification.builder()
+                        .id(notificationId)
+                        .receiverId(userId)
+                        .type(com.stok.app.entity.NotificationType.TRANSFER_REQUEST)
+                        .transferId(transferId)
+                        .build());
+        when(stockTransferRepository.transitionStatus(any(), any(), any())).thenReturn(0);
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> stockService.processTransfer(notificationId,
+                com.stok.app.entity.NotificationActionStatus.APPROVED));
+        verify(stockItemRepository, never()).upsertStock(any(), any());
+    }
+
+    private com.stok.app.entity.StockTransferItem transferLine(String serialLotNumber, int quantity) {
+        com.stok.app.entity.StockTransferItem item = new com.stok.app.entity.StockTransferItem();
+        item.setMaterialName("Test Material");
+        item.setSerialLotNumber(serialLotNumber);
+        item.setQuantity(quantity);
+        return item;
+    }
+
+    private com.stok.app.dto.request.TransferItemRequest transferItem(UUID stockItemId, int quantity) {
+        com.stok.app.dto.request.TransferItemRequest item = new com.stok.app.dto.request.TransferItemRequest();
+        item.setStockItemId(stockItemId);
+        item.setQuantity(quantity);
+        return item;
+    }
+
+    private RemoveStockRequest removeRequest(String materialName, String serialLotNumber, int quantity) {
+        RemoveStockRequest request = new RemoveStockRequest();
+        request.setMaterialName(materialName);
+        request.setSerialLotNumber(serialLotNumber);
+        request.setQuantity(quantity);
+        return request;
+    }
+
+    @Test
+    void checkDuplicates_ConfirmsOnlyFilterHitsInOneQuery() {
+        // Arrange
+        when(stockKeyFilter.filterFor(eq(userId), any()))
+                .thenReturn((name, serial) -> !serial.equals("SN-NEW"));
+        StockKeyProjection existing = mock(StockKeyProjection.class);
+        when(existing.getMaterialName()).thenReturn("Stent");
+        when(existing.getSerialLotNumber()).thenReturn("SN1");
+        when(stockItemRepository.findExistingKeys(eq(userId), any(), any())).thenReturn(List.of(existing));
+
+        // Act
+        List<Boolean> result = stockService.checkDuplicates(List.of(
+                duplicateCheck("Stent", "SN1"),
+                duplicateCheck("Stent", "SN-NEW"),
+                duplicateCheck("Stent", "SN2")), userId);
+
+        // Assert
+        assertEquals(List.of(true, false, false), result);
+        ArgumentCaptor<String[]> serials = ArgumentCaptor.forClass(String[].class);
+        verify(stockItemRepository).findExistingKeys(eq(userId), any(), serials.capture());
+        assertArrayEquals(new String[] { "SN1", "SN2" }, serials.getValue());
+    }
+
+    @Test
+    void getFefoSuggestions_GroupsLotsByMaterialInRequestOrder() {
+        // Arrange
+        StockItemRowProjection stentLot = mock(StockItemRowProjection.class);
+        when(stentLot.getMaterialName()).thenReturn("Stent");
+        when(stentLot.getSerialLotNumber()).thenReturn("LOT-EARLY");
+        when(stentLot.getQuantity()).thenReturn(2);
+        when(stockItemRepository.findFefoLots(eq(userId), any(), any(), eq(5))).thenReturn(List.of(stentLot));
+
+        // Act
+        List<com.stok.app.dto.response.FefoSuggestionResponse> suggestions = stockService.getFefoSuggestions(
+                List.of("Kateter", " Stent", "Stent", ""), 5, userId);
+
+        // Assert
+        ArgumentCaptor<String[]> names = ArgumentCaptor.forClass(String[].class);
+        verify(stockItemRepository).findFefoLots(eq(userId), names.capture(), eq(LocalDate.now()), eq(5));
+        assertArrayEquals(new String[] { "Kateter", "Stent" }, names.getValue());
+        assertEquals(2, suggestions.size());
+        assertEquals("Kateter", suggestions.get(0).getMaterialName());
+        assertTrue(suggestions.get(0).getLots().isEmpty());
+        assertEquals("LOT-EARLY", suggestions.get(1).getLots().get(0).getSerialLotNumber());
+    }
+
+    @Test
+    void patchStockItems_WritesOneAuditAndHistoryForTheBatch() {
+        // Arrange
+        List<com.stok.app.dto.request.StockItemPatchRequest> patches = List.of(
+                patch(UUID.randomUUID()), patch(UUID.randomUUID()));
+        when(stockItemRepository.patchStock(userId, patches))
+                .thenReturn(List.of(patches.get(0).getId(), patches.get(1).getId()));
+        List<StockItemRowProjection> rows = List.of(row(patches.get(0).getId()), row(patches.get(1).getId()));
+        when(stockItemRepository.findRowsByIds(any())).thenReturn(rows);
+
+        // Act
+        List<com.stok.app.dto.response.StockItemResponse> result = stockService.patchStockItems(patches, userId);
+
+        // Assert
+        assertEquals(2, result.size());
+        verify(auditLogService, times(1)).log(eq("BULK_UPDATE_STOCK"), eq("StockItem"), any(), anyString());
+        verify(historyService, times(1)).addHistory(eq(userId), eq("stock-update"), anyString(), any());
+        verify(stockItemRepository, never()).save(any());
+    }
+
+    @Test
+    void patchStockItems_ReturnsRowsInRequestOrder() {
+        // Arrange: the read-back comes sorted by material name and id
+        List<com.stok.app.dto.request.StockItemPatchRequest> patches = List.of(
+                patch(UUID.randomUUID()), patch(UUID.randomUUID()), patch(UUID.randomUUID()));
+        List<UUID> ids = patches.stream().map(com.stok.app.dto.request.StockItemPatchRequest::getId).toList();
+        when(stockItemRepository.patchStock(userId, patches)).thenReturn(ids);
+        List<StockItemRowProjection> rows = List.of(row(ids.get(2)), row(ids.get(0)), row(ids.get(1)));
+        when(stockItemRepository.findRowsByIds(any())).thenReturn(rows);
+
+        // Act
+        List<com.stok.app.dto.response.StockItemResponse> result = stockService.patchStockItems(patches, userId);
+
+        // Assert
+        assertEquals(ids, result.stream().map(com.stok.app.dto.response.StockItemResponse::getId).toList());
+    }
+
+    @Test
+    void patchStockItems_ForeignRow_FailsWithoutAuditOrHistory() {
+        // Arrange
+        List<com.stok.app.dto.request.StockItemPatchRequest> patches = List.of(
+                patch(UUID.randomUUID()), patch(UUID.randomUUID()));
+        // Only the user's own row matched the ownership check
+        when(stockItemRepository.patchStock(userId, patches)).thenReturn(List.of(patches.get(0).getId()));
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> stockService.patchStockItems(patches, userId));
+        verifyNoInteractions(auditLogService, historyService);
+    }
+
+    @Test
+    void patchStockItems_RepeatedId_IsRejectedBeforeUpdating() {
+        UUID id = UUID.randomUUID();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> stockService.patchStockItems(List.of(patch(id), patch(id)), userId));
+        verify(stockItemRepository, never()).patchStock(any(), any());
+    }
+
+    @Test
+    void deleteAllStock_DeletesThroughTheMovementRecordingChunkStatement() {
+        // Arrange
+        when(bulkDeleter.deleteInChunks(any())).thenAnswer(invocation -> (long) invocation
+                .<java.util.function.IntUnaryOperator>getArgument(0).applyAsInt(BulkDeleter.CHUNK_SIZE));
+        when(stockItemRepository.deleteChunkByUserId(userId, BulkDeleter.CHUNK_SIZE)).thenReturn(3);
+
+        // Act
+        long deleted = stockService.deleteAllStock(userId);
+
+        // Assert: deleteChunkByUserId writes the DELETE movements itself
+        assertEquals(3, deleted);
+        verify(stockItemRepository).deleteChunkByUserId(userId, BulkDeleter.CHUNK_SIZE);
+        verifyNoInteractions(stockMovementService);
+    }
+
+    private StockItemRowProjection row(UUID id) {
+        StockItemRowProjection row = mock(StockItemRowProjection.class);
+        when(row.getId()).thenReturn(id);
+        return row;
+    }
+
+    private com.stok.app.dto.request.StockItemPatchRequest patch(UUID id) {
+        com.stok.app.dto.request.StockItemPatchRequest patch = new com.stok.app.dto.request.StockItemPatchRequest();
+        patch.setId(id);
+        patch.setExpiryDate(LocalDate.of(2027, 6, 30));
+        return patch;
+    }
+
+    private com.stok.app.dto.request.DuplicateCheckRequest duplicateCheck(String materialName,
+            String serialLotNumber) {
+        com.stok.app.dto.request.DuplicateCheckRequest request = new com.stok.app.dto.request.DuplicateCheckRequest();
+        request.setMaterialName(materialName);
+        request.setSerialLotNumber(serialLotNumber);
+        return request;
+    }
+
+    private StockItemRequest request(String materialName, String serialLotNumber, int quantity) {
+        StockItemRequest request = new StockItemRequest();
+        request.setMaterialName(materialName);
+        request.setSerialLotNumber(serialLotNumber);
+        request.setQuantity(quantity);
+        request.setDateAdded(LocalDate.now());
+        return request;
+    }
+
+    private StockItemRowProjection row(String materialName, UUID id) {
+        StockItemRowProjection row = mock(StockItemRowProjection.class);
+        lenient().when(row.getMaterialName()).thenReturn(materialName);
+        lenient().when(row.getId()).thenReturn(id);
+        return row;
+    }
+
+    private com.stok.app.repository.projection.PrefixSummaryRow prefixRow(String prefix, long items, long units) {
+        com.stok.app.repository.projection.PrefixSummaryRow row = mock(
+                com.stok.app.repository.projection.PrefixSummaryRow.class);
+        lenient().when(row.getPrefix()).thenReturn(prefix);
+        lenient().when(row.getItemCount()).thenReturn(items);
+        lenient().when(row.getUnitCount()).thenReturn(units);
+        return row;
+    }
 }
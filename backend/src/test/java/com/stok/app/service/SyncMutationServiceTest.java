@@ -0,0 +1,83 @@
+package com.stok.app.service;
+
+import com.stok.app.dto.request.RemoveStockRequest;
+import com.stok.app.dto.request.SyncMutationRequest;
+import com.stok.app.dto.response.SyncMutationResponse;
+import com.stok.app.repository.SyncOperationRepository;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class SyncMutationServiceTest {
+
+    private final StockService stockService = mock(StockService.class);
+    private final CaseService caseService = mock(CaseService.class);
+    private final SyncOperationRepository syncOperationRepository = mock(SyncOperationRepository.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+    private SyncMutationService syncMutationService;
+
+    private final UUID userId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        syncMutationService = new SyncMutationService(stockService, caseService, syncOperationRepository,
+                Validation.buildDefaultValidatorFactory().getValidator(), transactionManager);
+    }
+
+    @Test
+    void apply_ReportsAppliedDuplicateAndFailedPerOperation() {
+        when(syncOperationRepository.claim(userId, "op-1")).thenReturn(1);
+        when(syncOperationRepository.claim(userId, "op-2")).thenReturn(0);
+        when(syncOperationRepository.claim(userId, "op-3")).thenReturn(1);
+        doThrow(new IllegalArgumentException("Insufficient stock"))
+                .when(stockService).removeStockItems(argThat(items -> items.get(0).getQuantity() == 9), eq(userId));
+
+        SyncMutationResponse response = syncMutationService.apply(userId, List.of(
+                removeOperation("op-1", 1),
+                removeOperation("op-2", 1),
+                removeOperation("op-3", 9)));
+
+        assertEquals(1, response.getAppliedCount());
+        assertEquals(1, response.getDuplicateCount());
+        assertEquals(1, response.getFailedCount());
+        assertEquals(SyncMutationResponse.Status.APPLIED, response.getResults().get(0).getStatus());
+        assertEquals(SyncMutationResponse.Status.DUPLICATE, response.getResults().get(1).getStatus());
+        assertEquals("Insufficient stock", response.getResults().get(2).getError());
+        // The duplicate is not applied again; the failed one was rolled back alone
+        verify(stockService, times(2)).removeStockItems(anyList(), eq(userId));
+        verify(transactionManager, times(2)).commit(any());
+        verify(transactionManager).rollback(any());
+    }
+
+    @Test
+    void apply_InvalidPayload_FailsWithoutClaimingTheOperation() {
+        SyncMutationResponse response = syncMutationService.apply(userId, List.of(removeOperation("op-1", 0)));
+
+        assertEquals(1, response.getFailedCount());
+        assertTrue(response.getResults().get(0).getError().contains("quantity"));
+        verifyNoInteractions(syncOperationRepository);
+        verify(stockService, never()).removeStockItems(anyList(), any(UUID.class));
+    }
+
+    private SyncMutationRequest.Operation removeOperation(String clientOperationId, int quantity) {
+        RemoveStockRequest item = new RemoveStockRequest();
+        item.setMaterialName("Stent");
+        item.setSerialLotNumber("LOT-1");
+        item.setQuantity(quantity);
+
+        SyncMutationRequest.Operation operation = new SyncMutationRequest.Operation();
+        operation.setClientOperationId(clientOperationId);
+        operation.setType(SyncMutationRequest.OperationType.REMOVE);
+        operation.setRemoveItems(List.of(item));
+        return operation;
+    }
+}
@@ -0,0 +1,144 @@
+package com.stok.app.service;
+
+import com.stok.app.dto.request.StockItemRequest;
+import com.stok.app.dto.request.SyncMutationRequest;
+import com.stok.app.dto.request.TransferItemRequest;
+import com.stok.app.dto.request.TransferRequest;
+import com.stok.app.dto.response.SyncMutationResponse;
+import com.stok.app.entity.StockItem;
+import com.stok.app.entity.User;
+import com.stok.app.repository.StockItemRepository;
+import com.stok.app.repository.SyncOperationRepository;
+import com.stok.app.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs a sync batch through the real transaction manager and the proxied
+ * StockService: an operation failing inside a @Transactional service call
+ * must not roll back the operations around it. Runs on an in-memory H2
+ * schema generated from the entities, without a test-managed transaction.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ StockService.class, SyncMutationService.class, LocalValidatorFactoryBean.class })
+@TestPropertySource(properties = {
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+public class SyncMutationTransactionTest {
+
+    @Autowired
+    private SyncMutationService syncMutationService;
+
+    @Autowired
+    private StockItemRepository stockItemRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    // The claim is PostgreSQL-specific (ON CONFLICT)
+    @MockBean
+    private SyncOperationRepository syncOperationRepository;
+
+    @MockBean
+    private CaseService caseService;
+    @MockBean
+    private HistoryService historyService;
+    @MockBean
+    private AuditLogService auditLogService;
+    @MockBean
+    private NotificationService notificationService;
+    @MockBean
+    private StockReadCache stockReadCache;
+    @MockBean
+    private StockSearchIndex stockSearchIndex;
+    @MockBean
+    private BulkDeleter bulkDeleter;
+    @MockBean
+    private StockMovementService stockMovementService;
+    @MockBean
+    private StockKeyFilter stockKeyFilter;
+
+    private UUID userId;
+
+    @BeforeEach
+    void setUp() {
+        User user = new User();
+        user.setUsername("sync-user");
+        user.setFullName("Sync User");
+        userId = userRepository.save(user).getId();
+        when(syncOperationRepository.claim(any(UUID.class), anyString())).thenReturn(1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        stockItemRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void apply_FailedOperation_KeepsTheOthersApplied() {
+        SyncMutationResponse response = syncMutationService.apply(userId, List.of(
+                addOperation("op-1", "LOT-1"),
+                transferToUnknownReceiver("op-2"),
+                addOperation("op-3", "LOT-2")));
+
+        assertEquals(2, response.getAppliedCount());
+        assertEquals(1, response.getFailedCount());
+        assertEquals(SyncMutationResponse.Status.FAILED, response.getResults().get(1).getStatus());
+        assertEquals("Receiver not found", response.getResults().get(1).getError());
+        assertEquals(List.of("LOT-1", "LOT-2"), stockItemRepository.findAll().stream()
+                .map(StockItem::getSerialLotNumber)
+                .sorted()
+                .toList());
+    }
+
+    private SyncMutationRequest.Operation addOperation(String clientOperationId, String serialLotNumber) {
+        StockItemRequest item = new StockItemRequest();
+        item.setMaterialName("Stent");
+        item.setSerialLotNumber(serialLotNumber);
+        item.setQuantity(1);
+        item.setDateAdded(LocalDate.now());
+
+        SyncMutationRequest.Operation operation = new SyncMutationRequest.Operation();
+        operation.setClientOperationId(clientOperationId);
+        operation.setType(SyncMutationRequest.OperationType.ADD);
+        operation.setStockItems(List.of(item));
+        return operation;
+    }
+
+    private SyncMutationRequest.Operation transferToUnknownReceiver(String clientOperationId) {
+        TransferItemRequest item = new TransferItemRequest();
+        item.setStockItemId(UUID.randomUUID());
+        item.setQuantity(1);
+        TransferRequest transfer = new TransferRequest();
+        transfer.setReceiverId(UUID.randomUUID());
+        transfer.setItems(List.of(item));
+
+        SyncMutationRequest.Operation operation = new SyncMutationRequest.Operation();
+        operation.setClientOperationId(clientOperationId);
+        operation.setType(SyncMutationRequest.OperationType.TRANSFER);
+        operation.setTransfer(transfer);
+        return operation;
+    }
+}
@@ -398,6 +398,8 @@ export default function HistoryPage({ onNavigate }: HistoryPageProps) {
         return 'Stok Çıkarma';
       case 'stock-delete':
         return 'Stok Silme';
+      case 'stock-update':
+        return 'Stok Düzeltme';
       case 'case':
         return 'Vaka';
       case 'checklist':
@@ -415,6 +417,8 @@ export default function HistoryPage({ onNavigate }: HistoryPageProps) {
         return 'bg-red-100 text-red-800';
       case 'stock-delete':
         return 'bg-orange-100 text-orange-800';
+      case 'stock-update':
+        return 'bg-yellow-100 text-yellow-800';
       case 'case':
         return 'bg-blue-100 text-blue-800';
       case 'checklist':
@@ -893,7 +897,7 @@ export default function HistoryPage({ onNavigate }: HistoryPageProps) {
                         </Button>
                       </>
                     )}
-                    {record.type !== 'checklist' && (
+                    {record.type !== 'checklist' && record.type !== 'stock-update' && (
                       <Button
                         size="sm"
                         variant="outline"
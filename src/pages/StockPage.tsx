@@ -40,7 +40,8 @@ interface StockPageProps {
 interface MaterialGroup {
   fullName: string;
   totalQuantity: number;
-  items: StockItem[];
+  // Item leaves are not part of the tree; see materialItems
+  itemCount: number;
   colorClass?: string;
 }
 
@@ -69,6 +70,10 @@ export default function StockPage({ onNavigate, currentUser, mode = 'view' }: St
   const [expandedPrefixes, setExpandedPrefixes] = useState<Set<string>>(new Set());
   const [expandedMaterials, setExpandedMaterials] = useState<Set<string>>(new Set());
   const [groupedStock, setGroupedStock] = useState<PrefixGroup[]>([]);
+  // Item leaves of expanded materials, keyed by material name
+  const [materialItems, setMaterialItems] = useState<Map<string, StockItem[]>>(new Map());
+  // Filters of the loaded tree, reused when a material is expanded
+  const groupFiltersRef = useRef<{ search?: string; userIds?: string[] }>({});
   const [stock, setStock] = useState<StockItem[]>([]); // Keep flat list for export/search if needed, or remove later if fully migrated
   const [totalItemCount, setTotalItemCount] = useState(0);
   const [totalFilteredQuantity, setTotalFilteredQuantity] = useState(0);
@@ -209,9 +214,19 @@ export default function StockPage({ onNavigate, currentUser, mode = 'view' }: St
         activeFilters.userIds = Array.from(userIds);
       }
 
-      // Fetch grouped payload
+      // Fetch grouped payload; item leaves are loaded per material on expand
       const groupedData = await stockService.getGrouped(activeFilters);
       setGroupedStock(groupedData);
+      groupFiltersRef.current = { search: activeFilters.search, userIds: activeFilters.userIds };
+
+      // Reload the leaves of materials that are still expanded
+      const expandedNames = groupedData
+        .flatMap((pg: any) => pg.materials.map((mg: any) => mg.fullName))
+        .filter((name: string) => expandedMaterials.has(name));
+      const reloaded = await Promise.all(
+        expandedNames.map((name: string) => stockService.getGroupedItems(name, groupFiltersRef.current))
+      );
+      setMaterialItems(new Map(expandedNames.map((name: string, i: number) => [name, reloaded[i]])));
 
       // Calculate totals from grouped data
       let itemCount = 0;
@@ -219,7 +234,7 @@ export default function StockPage({ onNavigate, currentUser, mode = 'view' }: St
       groupedData.forEach(pg => {
         totalQty += pg.totalQuantity;
         pg.materials.forEach((mg: any) => {
-          itemCount += mg.items.length;
+          itemCount += mg.itemCount;
         });
       });
       setTotalItemCount(itemCount);
@@ -379,7 +394,7 @@ export default function StockPage({ onNavigate, currentUser, mode = 'view' }: St
     setExpandedPrefixes(newExpanded);
   };
 
-  const toggleMaterial = (fullName: string) => {
+  const toggleMaterial = async (fullName: string) => {
     const newExpanded = new Set(expandedMaterials);
     if (newExpanded.has(fullName)) {
       newExpanded.delete(fullName);
@@ -387,6 +402,16 @@ export default function StockPage({ onNavigate, currentUser, mode = 'view' }: St
       newExpanded.add(fullName);
     }
     setExpandedMaterials(newExpanded);
+
+    if (newExpanded.has(fullName) && !materialItems.has(fullName)) {
+      try {
+        const items = await stockService.getGroupedItems(fullName, groupFiltersRef.current);
+        setMaterialItems(prev => new Map(prev).set(fullName, items));
+      } catch (error) {
+        console.error("Malzeme kalemleri yüklenirken hata:", error);
+        toast.error("Malzeme kalemleri yüklenemedi");
+      }
+    }
   };
 
   const handleDeleteItem = async (item: StockItem) => {
@@ -420,8 +445,12 @@ export default function StockPage({ onNavigate, currentUser, mode = 'view' }: St
       quantity: editingValues.quantity || item.quantity,
     };
 
-    await storage.updateStockItem(item.id, updatedItem);
-    toast.success('Malzeme başarıyla güncellendi');
+    try {
+      await storage.updateStockItem(item.id, updatedItem);
+      toast.success('Malzeme başarıyla güncellendi');
+    } catch (error) {
+      toast.error('Malzeme başka bir kullanıcı tarafından değiştirildi, lütfen tekrar deneyin');
+    }
     setEditingItemId(null);
     setEditingValues({});
     loadStock();
@@ -770,7 +799,7 @@ export default function StockPage({ onNavigate, currentUser, mode = 'view' }: St
                       {prefixGroup.materials.map((material) => {
                         const isMaterialExpanded = expandedMaterials.has(material.fullName);
                         const sortKey = `${prefixGroup.prefix}-${material.fullName}`;
-                        const sortedItems = getSortedItems(material.items, sortKey);
+                        const sortedItems = getSortedItems(materialItems.get(material.fullName) ?? [], sortKey);
 
                         return (
                           <div key={material.fullName} className="border-b last:border-b-0">
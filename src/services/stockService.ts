@@ -12,6 +12,8 @@ const mapToBackend = (item: Partial<StockItem>) => ({
     fromField: item.from || '',
     toField: item.to || '',
     materialCode: item.materialCode || '',
+    // Rejected with 409 if the row was changed after this client read it
+    version: item.version ?? null,
 });
 
 export const stockService = {
@@ -34,8 +36,24 @@ export const stockService = {
             }
             queryString = `?${params.toString()}`;
         }
-        // Returns PrefixGroupResponse[]
-        return api.get<any[]>(`/stocks/grouped${queryString}`);
+        // Returns PrefixGroupResponse[] without item leaves; see getGroupedItems
+        return api.get<any[]>(`/stocks/grouped${queryString}${queryString ? '&' : '?'}includeItems=false`);
+    },
+
+    // Items of one material in the grouped tree, loaded when it is expanded
+    getGroupedItems: (materialName: string, filters?: {
+        search?: string;
+        userIds?: string[];
+        userId?: string;
+    }) => {
+        const params = new URLSearchParams();
+        params.append('materialName', materialName);
+        if (filters?.search) params.append('search', filters.search);
+        if (filters?.userId) params.append('userId', filters.userId);
+        if (filters?.userIds && filters.userIds.length > 0) {
+            params.append('userIds', filters.userIds.join(','));
+        }
+        return api.get<StockItem[]>(`/stocks/grouped/items?${params.toString()}`);
     },
 
     getById: (id: string, userId?: string) => api.get<StockItem>(`/stocks/${id}${userId ? `?userId=${userId}` : ''}`),
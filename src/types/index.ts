@@ -13,6 +13,7 @@ export interface StockItem {
   materialCode?: string; // Malzeme Kodu (Excel'den gelen)
   ownerName?: string; // Verinin sahibi (Admin görünümü için)
   ownerId?: string; // Verinin sahibinin ID'si
+  version?: number; // Satır sürümü; güncellemede geri gönderilir
 }
 
 export interface CaseRecord {
@@ -55,7 +56,7 @@ export interface ChecklistRecord {
 export interface HistoryRecord {
   id: string;
   date: string;
-  type: 'stock-add' | 'stock-remove' | 'case' | 'stock-delete' | 'checklist';
+  type: 'stock-add' | 'stock-remove' | 'case' | 'stock-delete' | 'stock-update' | 'checklist';
   description: string;
   details: any;
   ownerName?: string;
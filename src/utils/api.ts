@@ -23,7 +23,9 @@ export const api = {
 
         if (!response.ok) {
             const errorData = await response.json().catch(() => ({}));
-            throw new Error(errorData.message || `API Error: ${response.status}`);
+            const error = new Error(errorData.message || `API Error: ${response.status}`) as Error & { status?: number };
+            error.status = response.status;
+            throw error;
         }
 
         if (response.status === 204) {
@@ -206,6 +206,10 @@ export const storage = {
       await stockService.update(id, updatedItem, user?.id);
       await storage.getStock();
     } catch (error) {
+      // Changed by someone else meanwhile: replaying it later would fail the same way
+      if ((error as { status?: number }).status === 409) {
+        throw error;
+      }
       const stock = JSON.parse(localStorage.getItem(STOCK_KEY) || '[]');
       const index = stock.findIndex((item: any) => item.id === id);
       if (index !== -1) {